@@ -0,0 +1,180 @@
+/*
+ * Copyright (c) 2021 dzikoysk
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package panda.std;
+
+import org.jetbrains.annotations.Nullable;
+import panda.std.reactive.Completable;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Supplier;
+
+/**
+ * Lazy value initialized asynchronously on the given executor.
+ * The first call of {@link #get()} schedules the supplier, and all callers share the same pending initialization,
+ * so the supplier is started once per initialization and callers are never blocked.
+ * Every caller receives its own dependent future, so completing or cancelling it does not affect other callers.
+ *
+ * @param <T> type of value
+ */
+public class AsyncLazy<T> {
+
+    /**
+     * Defines what happens with the next call of {@link #get()} after failed initialization.
+     */
+    public enum FailurePolicy {
+        /**
+         * Keep the failed future, every next call fails with the same exception (like {@link panda.std.Lazy}).
+         */
+        CACHE,
+        /**
+         * Start a new initialization on the next call.
+         */
+        RETRY
+    }
+
+    private final Supplier<T> supplier;
+    private final Executor executor;
+    private final FailurePolicy failurePolicy;
+    private final AtomicReference<@Nullable CompletableFuture<T>> future = new AtomicReference<>();
+
+    public AsyncLazy(Supplier<T> supplier, Executor executor, FailurePolicy failurePolicy) {
+        this.supplier = supplier;
+        this.executor = executor;
+        this.failurePolicy = failurePolicy;
+    }
+
+    public AsyncLazy(Supplier<T> supplier, Executor executor) {
+        this(supplier, executor, FailurePolicy.CACHE);
+    }
+
+    /**
+     * Create lazy value and start its initialization immediately.
+     */
+    public static <T> AsyncLazy<T> eager(Supplier<T> supplier, Executor executor, FailurePolicy failurePolicy) {
+        AsyncLazy<T> lazy = new AsyncLazy<>(supplier, executor, failurePolicy);
+        lazy.warmUp();
+        return lazy;
+    }
+
+    /**
+     * @return future completed with value, or exceptionally with {@link panda.std.AttemptFailedException} if the supplier has failed
+     */
+    public CompletableFuture<T> get() {
+        return view(initialization());
+    }
+
+    private CompletableFuture<T> initialization() {
+        while (true) {
+            CompletableFuture<T> current = future.get();
+
+            if (current != null && !(failurePolicy == FailurePolicy.RETRY && current.isCompletedExceptionally())) {
+                return current;
+            }
+
+            CompletableFuture<T> initialization = new CompletableFuture<>();
+
+            if (future.compareAndSet(current, initialization)) {
+                start(initialization);
+                return initialization;
+            }
+        }
+    }
+
+    /**
+     * Create future completed with the same outcome as the shared initialization (without wrapping its exception),
+     * so callers cannot complete, cancel or obtrude the value seen by others.
+     */
+    private CompletableFuture<T> view(CompletableFuture<T> initialization) {
+        CompletableFuture<T> view = new CompletableFuture<>();
+
+        initialization.whenComplete((value, failure) -> {
+            if (failure == null) {
+                view.complete(value);
+            }
+            else {
+                view.completeExceptionally(failure);
+            }
+        });
+
+        return view;
+    }
+
+    private void start(CompletableFuture<T> initialization) {
+        try {
+            executor.execute(() -> {
+                try {
+                    initialization.complete(supplier.get());
+                }
+                catch (Exception exception) {
+                    initialization.completeExceptionally(new AttemptFailedException("Cannot initialize lazy value", exception));
+                }
+                catch (Throwable throwable) {
+                    initialization.completeExceptionally(throwable);
+                    throw throwable;
+                }
+            });
+        }
+        catch (RejectedExecutionException rejectedExecutionException) {
+            initialization.completeExceptionally(new AttemptFailedException("Cannot schedule initialization of lazy value", rejectedExecutionException));
+        }
+    }
+
+    /**
+     * Start initialization, if it has not been started yet.
+     *
+     * @return this lazy value
+     */
+    public AsyncLazy<T> warmUp() {
+        initialization();
+        return this;
+    }
+
+    /**
+     * @return completable completed with value once the initialization succeeds (never completed if it fails)
+     */
+    public Completable<T> toCompletable() {
+        Completable<T> completable = new Completable<>();
+        initialization().thenAccept(completable::complete);
+        return completable;
+    }
+
+    /**
+     * @return value if the initialization has already succeeded
+     */
+    public Option<T> getIfReady() {
+        CompletableFuture<T> current = future.get();
+        return current != null && current.isDone() && !current.isCompletedExceptionally() ? Option.of(current.join()) : Option.none();
+    }
+
+    public boolean isStarted() {
+        return future.get() != null;
+    }
+
+    public boolean isInitialized() {
+        CompletableFuture<T> current = future.get();
+        return current != null && current.isDone();
+    }
+
+    public boolean hasFailed() {
+        CompletableFuture<T> current = future.get();
+        return current != null && current.isCompletedExceptionally();
+    }
+
+}
@@ -0,0 +1,280 @@
+/*
+ * Copyright (c) 2021 dzikoysk
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package panda.std;
+
+import org.jetbrains.annotations.Nullable;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Supplier;
+
+/**
+ * Lazy value with time-to-live, refreshed in the background.
+ * When the value gets older than the refresh interval, the next read schedules a refresh on the executor and still returns the current (stale) value,
+ * so readers are not blocked and only one refresh is in flight at a time.
+ * Reads block only if there is no value yet, or if the value exceeded the optional expiration limit.
+ * Failed background refresh keeps the previous value and is retried by the first read after another refresh interval.
+ * Result of a refresh is dropped if the value has been invalidated or reloaded while the refresh was in flight.
+ *
+ * @param <T> type of value
+ */
+public class ExpiringLazy<T> implements Supplier<T> {
+
+    private final Supplier<T> supplier;
+    private final long refreshAfter;
+    private final long expireAfter;
+    private final Executor executor;
+    private final Clock clock;
+    private final AtomicBoolean refreshing = new AtomicBoolean();
+    /**
+     * Every change of state (load, refresh, invalidation) publishes a new entry,
+     * so background refresh can detect with CAS that the entry it started from has been replaced.
+     */
+    private final AtomicReference<Entry<T>> entry = new AtomicReference<>(Entry.empty());
+    private volatile @Nullable Exception refreshFailure;
+    private volatile long refreshRetryAt;
+    private volatile boolean loaded;
+    private volatile @Nullable LazyObserver observer;
+
+    /**
+     * @param supplier the supplier of value
+     * @param refreshAfter the age of value that triggers background refresh
+     * @param expireAfter the age of value that cannot be returned anymore (readers wait for a new value), or null if stale value can be always returned
+     * @param executor the executor used to refresh value in the background
+     * @param clock the clock used to measure age of value
+     */
+    public ExpiringLazy(Supplier<T> supplier, Duration refreshAfter, @Nullable Duration expireAfter, Executor executor, Clock clock) {
+        if (refreshAfter.isNegative()) {
+            throw new IllegalArgumentException("Refresh interval cannot be negative, got " + refreshAfter);
+        }
+
+        if (expireAfter != null && expireAfter.compareTo(refreshAfter) < 0) {
+            throw new IllegalArgumentException("Expiration limit (" + expireAfter + ") cannot be shorter than refresh interval (" + refreshAfter + ")");
+        }
+
+        this.supplier = supplier;
+        this.refreshAfter = refreshAfter.toMillis();
+        this.expireAfter = expireAfter == null ? Long.MAX_VALUE : expireAfter.toMillis();
+        this.executor = executor;
+        this.clock = clock;
+    }
+
+    public ExpiringLazy(Supplier<T> supplier, Duration ttl, Executor executor) {
+        this(supplier, ttl, null, executor, Clock.systemUTC());
+    }
+
+    public ExpiringLazy(Supplier<T> supplier, Duration ttl) {
+        this(supplier, ttl, ForkJoinPool.commonPool());
+    }
+
+    @Override
+    public T get() {
+        Entry<T> current = entry.get();
+
+        if (current.isEmpty()) {
+            return load(current).value;
+        }
+
+        long now = clock.millis();
+        long age = now - current.createdAt;
+
+        if (age >= expireAfter) {
+            return load(current).value;
+        }
+
+        if (age >= refreshAfter && now >= refreshRetryAt) {
+            refreshAsync();
+        }
+
+        return current.value;
+    }
+
+    /**
+     * Load value on the calling thread, unless other thread has already replaced the observed entry.
+     */
+    private Entry<T> load(Entry<T> observed) {
+        LazyObserver currentObserver = observer;
+        long requestTime = currentObserver == null ? 0 : System.nanoTime();
+
+        synchronized (this) {
+            Entry<T> current = entry.get();
+
+            if (current != observed && !current.isEmpty()) {
+                if (currentObserver != null) {
+                    currentObserver.onWaited(this, System.nanoTime() - requestTime);
+                }
+
+                return current;
+            }
+
+            long startTime = currentObserver == null ? 0 : System.nanoTime();
+
+            Entry<T> loaded;
+
+            try {
+                loaded = new Entry<>(supplier.get(), clock.millis());
+                entry.set(loaded);
+            }
+            catch (Exception exception) {
+                failed(currentObserver, startTime, exception);
+                throw new AttemptFailedException("Cannot initialize lazy value", exception);
+            }
+
+            computed(currentObserver, startTime);
+            return loaded;
+        }
+    }
+
+    /**
+     * Schedule background refresh, unless another refresh is already in flight.
+     */
+    public void refreshAsync() {
+        if (!refreshing.compareAndSet(false, true)) {
+            return;
+        }
+
+        try {
+            Entry<T> observed = entry.get();
+            executor.execute(() -> refresh(observed));
+        }
+        catch (RejectedExecutionException rejectedExecutionException) {
+            refreshing.set(false);
+        }
+    }
+
+    private void refresh(Entry<T> observed) {
+        LazyObserver currentObserver = observer;
+        long startTime = currentObserver == null ? 0 : System.nanoTime();
+        Exception failure = null;
+        boolean published = false;
+
+        try {
+            Entry<T> refreshed = new Entry<>(supplier.get(), clock.millis());
+
+            if (entry.compareAndSet(observed, refreshed)) {
+                this.refreshFailure = null;
+                this.refreshRetryAt = 0;
+                published = true;
+            }
+        }
+        catch (Exception exception) {
+            long now = clock.millis();
+            failure = exception;
+            this.refreshFailure = exception;
+            this.refreshRetryAt = now + refreshAfter < now ? Long.MAX_VALUE : now + refreshAfter;
+        }
+        finally {
+            refreshing.set(false);
+        }
+
+        // observer is notified once the state is stored, so its exceptions cannot change the outcome
+        if (published) {
+            computed(currentObserver, startTime);
+        }
+        else if (failure != null) {
+            failed(currentObserver, startTime, failure);
+        }
+    }
+
+    private void computed(@Nullable LazyObserver currentObserver, long startTime) {
+        boolean recomputed = loaded;
+        this.loaded = true;
+
+        if (currentObserver == null) {
+            return;
+        }
+
+        long duration = System.nanoTime() - startTime;
+
+        if (recomputed) {
+            currentObserver.onRecomputed(this, duration);
+        }
+        else {
+            currentObserver.onInitialized(this, duration);
+        }
+    }
+
+    private void failed(@Nullable LazyObserver currentObserver, long startTime, Exception exception) {
+        if (currentObserver != null) {
+            currentObserver.onFailed(this, System.nanoTime() - startTime, exception);
+        }
+    }
+
+    /**
+     * Register observer of initialization events, refreshes and reloads after expiration are reported as recomputations.
+     *
+     * @param observer the observer, or null to remove the current one
+     * @return this lazy value
+     */
+    public ExpiringLazy<T> observe(@Nullable LazyObserver observer) {
+        this.observer = observer;
+        return this;
+    }
+
+    /**
+     * Drop the current value, so the next read waits for a new one.
+     */
+    public void invalidate() {
+        entry.set(Entry.empty());
+    }
+
+    public boolean isInitialized() {
+        return !entry.get().isEmpty();
+    }
+
+    public boolean isRefreshing() {
+        return refreshing.get();
+    }
+
+    /**
+     * @return the exception thrown by the last background refresh, if it failed
+     */
+    public Option<Exception> getRefreshFailure() {
+        return Option.of(refreshFailure);
+    }
+
+    private static final class Entry<T> {
+
+        private static final long EMPTY = Long.MIN_VALUE;
+
+        private final @Nullable T value;
+        private final long createdAt;
+
+        private Entry(@Nullable T value, long createdAt) {
+            this.value = value;
+            this.createdAt = createdAt;
+        }
+
+        /**
+         * @return a new entry without value, distinct from all previous ones
+         */
+        private static <T> Entry<T> empty() {
+            return new Entry<>(null, EMPTY);
+        }
+
+        private boolean isEmpty() {
+            return createdAt == EMPTY;
+        }
+
+    }
+
+}
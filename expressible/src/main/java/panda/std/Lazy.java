@@ -16,18 +16,34 @@
 
 package panda.std;
 
+import org.jetbrains.annotations.Nullable;
+
 import java.util.function.Supplier;
 
+/**
+ * Value computed on first access.
+ * Once initialized, reads are a single volatile load, without locking.
+ * Concurrent first callers wait for a single call of the supplier, and if it fails, every next call fails with the same exception.
+ *
+ * @param <T> type of value
+ */
 public class Lazy<T> implements Supplier<T> {
 
+    private static final int UNINITIALIZED = 0;
+    private static final int INITIALIZING = 1;
+    private static final int INITIALIZED = 2;
+    private static final int FAILED = 3;
+
+    // value and exception are published by the volatile write to state
+    private volatile int state;
     private Supplier<T> supplier;
-    private boolean initialized;
     private T value;
     private Exception exception;
+    private volatile @Nullable LazyObserver observer;
 
     public Lazy(T value) {
-        this.initialized = true;
         this.value = value;
+        this.state = INITIALIZED;
     }
 
     public Lazy(Supplier<T> supplier) {
@@ -42,32 +58,101 @@ public class Lazy<T> implements Supplier<T> {
     }
 
     @Override
-    public synchronized T get() {
-        if (exception != null) {
-            throw new AttemptFailedException("Lazy value has been already initialized with exception", exception);
-        }
+    public T get() {
+        int currentState = state;
 
-        if (initialized) {
+        if (currentState == INITIALIZED) {
             return value;
         }
 
-        this.initialized = true;
+        if (currentState == FAILED) {
+            throw new AttemptFailedException("Lazy value has been already initialized with exception", exception);
+        }
+
+        return initialize();
+    }
+
+    private T initialize() {
+        LazyObserver currentObserver = observer;
+        long requestTime = currentObserver == null ? 0 : System.nanoTime();
 
-        try {
-            return this.value = supplier.get();
+        synchronized (this) {
+            switch (state) {
+                case INITIALIZED:
+                    waited(currentObserver, requestTime);
+                    return value;
+                case FAILED:
+                    waited(currentObserver, requestTime);
+                    throw new AttemptFailedException("Lazy value has been already initialized with exception", exception);
+                case INITIALIZING:
+                    // recursive call from the supplier, other threads are blocked on monitor
+                    return value;
+                default:
+                    break;
+            }
+
+            this.state = INITIALIZING;
+            long startTime = currentObserver == null ? 0 : System.nanoTime();
+            Exception failure = null;
+
+            try {
+                this.value = supplier.get();
+                this.supplier = null;
+                this.state = INITIALIZED;
+            }
+            catch (Exception exception) {
+                failure = exception;
+                this.exception = exception;
+                this.supplier = null;
+                this.state = FAILED;
+            }
+            finally {
+                if (state == INITIALIZING) {
+                    // supplier has thrown an error, let the next call try again
+                    this.state = UNINITIALIZED;
+                }
+            }
+
+            // observer is notified once the state is stored, so its exceptions cannot change the outcome
+            if (failure != null) {
+                if (currentObserver != null) {
+                    currentObserver.onFailed(this, System.nanoTime() - startTime, failure);
+                }
+
+                throw new AttemptFailedException("Cannot initialize lazy value", failure);
+            }
+
+            if (currentObserver != null) {
+                currentObserver.onInitialized(this, System.nanoTime() - startTime);
+            }
+
+            return value;
         }
-        catch (Exception exception) {
-            this.exception = exception;
-            throw new AttemptFailedException("Cannot initialize lazy value", exception);
+    }
+
+    private void waited(@Nullable LazyObserver currentObserver, long requestTime) {
+        if (currentObserver != null) {
+            currentObserver.onWaited(this, System.nanoTime() - requestTime);
         }
     }
 
+    /**
+     * Register observer of initialization events, it should be registered before the value is shared with other threads.
+     *
+     * @param observer the observer, or null to remove the current one
+     * @return this lazy value
+     */
+    public Lazy<T> observe(@Nullable LazyObserver observer) {
+        this.observer = observer;
+        return this;
+    }
+
     public boolean isInitialized() {
-        return initialized;
+        return state != UNINITIALIZED;
     }
 
     public boolean hasFailed() {
-        return exception != null;
+        return state == FAILED;
     }
 
 }
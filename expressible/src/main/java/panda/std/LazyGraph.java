@@ -0,0 +1,270 @@
+/*
+ * Copyright (c) 2021 dzikoysk
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package panda.std;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+/**
+ * Registry of lazy values with declared dependencies, used to initialize them ahead of the first use.
+ * {@link #warmUp(java.util.concurrent.Executor)} initializes every value after all its dependencies,
+ * and values that do not depend on each other are initialized in parallel.
+ * Any {@link java.util.function.Supplier} can be registered, e.g. {@link panda.std.Lazy} or its variants.
+ */
+public final class LazyGraph {
+
+    private static final int VISITING = 1;
+    private static final int VISITED = 2;
+
+    private final Map<String, Node> nodes = new LinkedHashMap<>();
+
+    /**
+     * @param name the unique name of lazy value
+     * @param lazy the lazy value, initialized by calling its {@link java.util.function.Supplier#get()}
+     * @param dependencies names of lazy values that must be initialized before this one
+     * @return this graph
+     */
+    public synchronized LazyGraph register(String name, Supplier<?> lazy, String... dependencies) {
+        if (nodes.containsKey(name)) {
+            throw new IllegalArgumentException("Lazy value '" + name + "' has been already registered");
+        }
+
+        nodes.put(name, new Node(name, lazy, Arrays.asList(dependencies)));
+        return this;
+    }
+
+    /**
+     * Initialize all registered values on the given executor.
+     * If initialization of a value fails, values depending on it are skipped and reported as failed too.
+     *
+     * @param executor the executor used to initialize values
+     * @return future completed with report, once all values are initialized or skipped
+     * @throws java.lang.IllegalStateException if graph contains unknown dependency or a cycle
+     */
+    public synchronized CompletableFuture<WarmUpReport> warmUp(Executor executor) {
+        Map<String, List<Node>> dependents = validate();
+        WarmUp warmUp = new WarmUp(executor, dependents);
+
+        if (nodes.isEmpty()) {
+            warmUp.result.complete(new WarmUpReport(Collections.emptyMap(), Collections.emptyMap(), Duration.ZERO));
+            return warmUp.result;
+        }
+
+        for (Node node : nodes.values()) {
+            if (node.dependencies.isEmpty()) {
+                warmUp.schedule(node);
+            }
+        }
+
+        return warmUp.result;
+    }
+
+    /**
+     * @return map of dependents of every node
+     */
+    private Map<String, List<Node>> validate() {
+        Map<String, List<Node>> dependents = new HashMap<>();
+
+        for (Node node : nodes.values()) {
+            for (String dependency : node.dependencies) {
+                if (!nodes.containsKey(dependency)) {
+                    throw new IllegalStateException("Lazy value '" + node.name + "' depends on unknown value '" + dependency + "'");
+                }
+
+                dependents.computeIfAbsent(dependency, key -> new ArrayList<>()).add(node);
+            }
+        }
+
+        Map<String, Integer> states = new HashMap<>();
+        List<String> path = new ArrayList<>();
+
+        for (Node node : nodes.values()) {
+            detectCycle(node, states, path);
+        }
+
+        return dependents;
+    }
+
+    private void detectCycle(Node node, Map<String, Integer> states, List<String> path) {
+        Integer state = states.get(node.name);
+
+        if (state != null && state == VISITED) {
+            return;
+        }
+
+        if (state != null) {
+            List<String> cycle = new ArrayList<>(path.subList(path.indexOf(node.name), path.size()));
+            cycle.add(node.name);
+            throw new IllegalStateException("Lazy values contain dependency cycle: " + String.join(" -> ", cycle));
+        }
+
+        states.put(node.name, VISITING);
+        path.add(node.name);
+
+        for (String dependency : node.dependencies) {
+            detectCycle(nodes.get(dependency), states, path);
+        }
+
+        path.remove(path.size() - 1);
+        states.put(node.name, VISITED);
+    }
+
+    private final class WarmUp {
+
+        private final Executor executor;
+        private final Map<String, List<Node>> dependents;
+        private final Map<String, AtomicInteger> remainingDependencies = new HashMap<>();
+        private final Map<String, Duration> initTimes = new ConcurrentHashMap<>();
+        private final Map<String, Throwable> failures = new ConcurrentHashMap<>();
+        private final AtomicInteger remaining = new AtomicInteger(nodes.size());
+        private final CompletableFuture<WarmUpReport> result = new CompletableFuture<>();
+        private final long startTime = System.nanoTime();
+
+        private WarmUp(Executor executor, Map<String, List<Node>> dependents) {
+            this.executor = executor;
+            this.dependents = dependents;
+
+            for (Node node : nodes.values()) {
+                remainingDependencies.put(node.name, new AtomicInteger(node.dependencies.size()));
+            }
+        }
+
+        private void schedule(Node node) {
+            try {
+                executor.execute(() -> initialize(node));
+            }
+            catch (RejectedExecutionException rejectedExecutionException) {
+                fail(node, rejectedExecutionException);
+            }
+        }
+
+        private void initialize(Node node) {
+            long nodeStartTime = System.nanoTime();
+
+            try {
+                node.lazy.get();
+            }
+            catch (Throwable throwable) {
+                fail(node, throwable);
+                return;
+            }
+
+            initTimes.put(node.name, Duration.ofNanos(System.nanoTime() - nodeStartTime));
+            complete(node);
+
+            for (Node dependent : dependents.getOrDefault(node.name, Collections.emptyList())) {
+                if (remainingDependencies.get(dependent.name).decrementAndGet() == 0) {
+                    schedule(dependent);
+                }
+            }
+        }
+
+        /**
+         * Mark node and all its (transitive) dependents as failed.
+         */
+        private void fail(Node node, Throwable failure) {
+            if (failures.putIfAbsent(node.name, failure) != null) {
+                return;
+            }
+
+            complete(node);
+            AttemptFailedException dependencyFailure = new AttemptFailedException("Dependency '" + node.name + "' has failed", failure);
+
+            for (Node dependent : dependents.getOrDefault(node.name, Collections.emptyList())) {
+                fail(dependent, dependencyFailure);
+            }
+        }
+
+        private void complete(Node node) {
+            if (remaining.decrementAndGet() == 0) {
+                result.complete(new WarmUpReport(initTimes, failures, Duration.ofNanos(System.nanoTime() - startTime)));
+            }
+        }
+
+    }
+
+    /**
+     * Summary of {@link #warmUp(java.util.concurrent.Executor)}.
+     */
+    public static final class WarmUpReport {
+
+        private final Map<String, Duration> initTimes;
+        private final Map<String, Throwable> failures;
+        private final Duration totalTime;
+
+        private WarmUpReport(Map<String, Duration> initTimes, Map<String, Throwable> failures, Duration totalTime) {
+            this.initTimes = Collections.unmodifiableMap(new HashMap<>(initTimes));
+            this.failures = Collections.unmodifiableMap(new HashMap<>(failures));
+            this.totalTime = totalTime;
+        }
+
+        /**
+         * @return time spent on initialization of every successfully initialized value
+         */
+        public Map<String, Duration> getInitTimes() {
+            return initTimes;
+        }
+
+        /**
+         * @return failures of values that could not be initialized (including values skipped because of failed dependency)
+         */
+        public Map<String, Throwable> getFailures() {
+            return failures;
+        }
+
+        public Duration getTotalTime() {
+            return totalTime;
+        }
+
+        public boolean isSuccessful() {
+            return failures.isEmpty();
+        }
+
+        @Override
+        public String toString() {
+            return "WarmUpReport{totalTime=" + totalTime + ", initTimes=" + initTimes + ", failures=" + failures.keySet() + "}";
+        }
+
+    }
+
+    private static final class Node {
+
+        private final String name;
+        private final Supplier<?> lazy;
+        private final List<String> dependencies;
+
+        private Node(String name, Supplier<?> lazy, List<String> dependencies) {
+            this.name = name;
+            this.lazy = lazy;
+            this.dependencies = dependencies;
+        }
+
+    }
+
+}
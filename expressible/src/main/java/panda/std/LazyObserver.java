@@ -0,0 +1,64 @@
+/*
+ * Copyright (c) 2021 dzikoysk
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package panda.std;
+
+import java.util.function.Supplier;
+
+/**
+ * Receives initialization events of lazy values ({@link panda.std.Lazy} and its variants), registered with their {@code observe} method.
+ * Events are reported only from slow paths (initialization, waiting for initialization by another thread),
+ * so lazy values without observer and reads of already initialized values are not affected.
+ * Callbacks may be called while the lazy value holds its lock, so they should be fast.
+ * Callbacks are called after the lazy value has stored its outcome, so an exception thrown by observer
+ * is propagated to the caller that triggered the event, but it never changes the value or the failure cached by the lazy value.
+ */
+public interface LazyObserver {
+
+    /**
+     * Called once the value has been computed for the first time.
+     *
+     * @param lazy the observed lazy value
+     * @param durationNanos the time spent in supplier
+     */
+    default void onInitialized(Supplier<?> lazy, long durationNanos) { }
+
+    /**
+     * Called when the supplier has thrown an exception.
+     *
+     * @param lazy the observed lazy value
+     * @param durationNanos the time spent in supplier
+     * @param failure the exception thrown by supplier
+     */
+    default void onFailed(Supplier<?> lazy, long durationNanos, Throwable failure) { }
+
+    /**
+     * Called when the caller had to wait for initialization performed by another thread.
+     *
+     * @param lazy the observed lazy value
+     * @param waitNanos the time spent on waiting
+     */
+    default void onWaited(Supplier<?> lazy, long waitNanos) { }
+
+    /**
+     * Called when a variant that recomputes its value (e.g. after expiration or reclamation) has computed it again.
+     *
+     * @param lazy the observed lazy value
+     * @param durationNanos the time spent in supplier
+     */
+    default void onRecomputed(Supplier<?> lazy, long durationNanos) { }
+
+}
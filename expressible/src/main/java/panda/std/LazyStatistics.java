@@ -0,0 +1,94 @@
+/*
+ * Copyright (c) 2021 dzikoysk
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package panda.std;
+
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
+/**
+ * {@link panda.std.LazyObserver} that aggregates events of all observed lazy values.
+ */
+public final class LazyStatistics implements LazyObserver {
+
+    private final LongAdder initializations = new LongAdder();
+    private final LongAdder initializationNanos = new LongAdder();
+    private final LongAdder failures = new LongAdder();
+    private final LongAdder waiters = new LongAdder();
+    private final LongAdder waitNanos = new LongAdder();
+    private final LongAdder recomputations = new LongAdder();
+    private final LongAdder recomputationNanos = new LongAdder();
+
+    @Override
+    public void onInitialized(Supplier<?> lazy, long durationNanos) {
+        initializations.increment();
+        initializationNanos.add(durationNanos);
+    }
+
+    @Override
+    public void onFailed(Supplier<?> lazy, long durationNanos, Throwable failure) {
+        failures.increment();
+    }
+
+    @Override
+    public void onWaited(Supplier<?> lazy, long waitNanos) {
+        waiters.increment();
+        this.waitNanos.add(waitNanos);
+    }
+
+    @Override
+    public void onRecomputed(Supplier<?> lazy, long durationNanos) {
+        recomputations.increment();
+        recomputationNanos.add(durationNanos);
+    }
+
+    public long getInitializations() {
+        return initializations.sum();
+    }
+
+    public long getInitializationNanos() {
+        return initializationNanos.sum();
+    }
+
+    public long getFailures() {
+        return failures.sum();
+    }
+
+    public long getWaiters() {
+        return waiters.sum();
+    }
+
+    public long getWaitNanos() {
+        return waitNanos.sum();
+    }
+
+    public long getRecomputations() {
+        return recomputations.sum();
+    }
+
+    public long getRecomputationNanos() {
+        return recomputationNanos.sum();
+    }
+
+    @Override
+    public String toString() {
+        return String.format("LazyStatistics{initializations=%d (%.3fms), failures=%d, waiters=%d (%.3fms), recomputations=%d (%.3fms)}",
+                getInitializations(), getInitializationNanos() / 1_000_000.0, getFailures(),
+                getWaiters(), getWaitNanos() / 1_000_000.0,
+                getRecomputations(), getRecomputationNanos() / 1_000_000.0);
+    }
+
+}
@@ -0,0 +1,179 @@
+/*
+ * Copyright (c) 2021 dzikoysk
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package panda.std;
+
+import org.jetbrains.annotations.Nullable;
+
+import java.lang.ref.Reference;
+import java.lang.ref.SoftReference;
+import java.lang.ref.WeakReference;
+import java.util.function.Supplier;
+
+/**
+ * Lazy value held through a soft or weak reference, so garbage collector may reclaim it under memory pressure.
+ * Reclaimed value is transparently computed again by the next read.
+ * Reads of present value are lock-free, concurrent computations of absent value are single-flight.
+ * Failed computation is not cached, the next read calls supplier again.
+ *
+ * @param <T> type of value
+ */
+public class ReclaimableLazy<T> implements Supplier<T> {
+
+    public enum ReferenceType {
+        /**
+         * Value is reclaimed only if memory is low, useful for caches.
+         */
+        SOFT,
+        /**
+         * Value is reclaimed by the next garbage collection, once it is no longer strongly reachable elsewhere.
+         */
+        WEAK
+    }
+
+    private static final Object NULL_VALUE = new Object();
+
+    private final Supplier<T> supplier;
+    private final ReferenceType referenceType;
+    private volatile @Nullable Reference<Object> reference;
+    private volatile long computations;
+    private volatile @Nullable LazyObserver observer;
+
+    public ReclaimableLazy(Supplier<T> supplier, ReferenceType referenceType) {
+        this.supplier = supplier;
+        this.referenceType = referenceType;
+    }
+
+    public static <T> ReclaimableLazy<T> soft(Supplier<T> supplier) {
+        return new ReclaimableLazy<>(supplier, ReferenceType.SOFT);
+    }
+
+    public static <T> ReclaimableLazy<T> weak(Supplier<T> supplier) {
+        return new ReclaimableLazy<>(supplier, ReferenceType.WEAK);
+    }
+
+    @Override
+    public T get() {
+        Object value = dereference();
+        return value != null ? unmask(value) : compute();
+    }
+
+    private T compute() {
+        LazyObserver currentObserver = observer;
+        long requestTime = currentObserver == null ? 0 : System.nanoTime();
+
+        synchronized (this) {
+            Object value = dereference();
+
+            if (value != null) {
+                if (currentObserver != null) {
+                    currentObserver.onWaited(this, System.nanoTime() - requestTime);
+                }
+
+                return unmask(value);
+            }
+
+            long startTime = currentObserver == null ? 0 : System.nanoTime();
+            T computed;
+
+            try {
+                computed = supplier.get();
+            }
+            catch (Exception exception) {
+                if (currentObserver != null) {
+                    currentObserver.onFailed(this, System.nanoTime() - startTime, exception);
+                }
+
+                throw new AttemptFailedException("Cannot initialize lazy value", exception);
+            }
+
+            Object masked = computed == null ? NULL_VALUE : computed;
+            this.reference = referenceType == ReferenceType.SOFT ? new SoftReference<>(masked) : new WeakReference<>(masked);
+            this.computations = computations + 1;
+
+            if (currentObserver != null) {
+                long duration = System.nanoTime() - startTime;
+
+                if (computations == 1) {
+                    currentObserver.onInitialized(this, duration);
+                }
+                else {
+                    currentObserver.onRecomputed(this, duration);
+                }
+            }
+
+            return computed;
+        }
+    }
+
+    private @Nullable Object dereference() {
+        Reference<Object> current = reference;
+        return current == null ? null : current.get();
+    }
+
+    @SuppressWarnings("unchecked")
+    private T unmask(Object value) {
+        return value == NULL_VALUE ? null : (T) value;
+    }
+
+    /**
+     * Register observer of initialization events, every computation after reclamation is reported as recomputation.
+     *
+     * @param observer the observer, or null to remove the current one
+     * @return this lazy value
+     */
+    public ReclaimableLazy<T> observe(@Nullable LazyObserver observer) {
+        this.observer = observer;
+        return this;
+    }
+
+    /**
+     * Drop the current value, so the next read computes it again.
+     */
+    public void invalidate() {
+        this.reference = null;
+    }
+
+    /**
+     * Clear the current reference the same way garbage collector does, used to test reclamation deterministically.
+     */
+    void reclaim() {
+        Reference<Object> current = reference;
+
+        if (current != null) {
+            current.clear();
+        }
+    }
+
+    /**
+     * @return true if value is computed and has not been reclaimed yet
+     */
+    public boolean isInitialized() {
+        return dereference() != null;
+    }
+
+    /**
+     * @return number of successful supplier calls, greater than 1 if value has been reclaimed or invalidated
+     */
+    public long getComputations() {
+        return computations;
+    }
+
+    public ReferenceType getReferenceType() {
+        return referenceType;
+    }
+
+}
@@ -0,0 +1,289 @@
+/*
+ * Copyright (c) 2021 dzikoysk
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package panda.std;
+
+import org.jetbrains.annotations.Nullable;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.function.Supplier;
+
+/**
+ * Lazy value that retries failed initialization with exponential backoff instead of latching the first failure forever.
+ * During the backoff window, callers fail fast with the cached failure, without calling the supplier.
+ * Once initialized, reads are lock-free. Concurrent initialization attempts are single-flight,
+ * recursive access from the supplier fails the attempt instead of calling the supplier again.
+ *
+ * @param <T> type of value
+ */
+public class RetryingLazy<T> implements Supplier<T> {
+
+    private final Supplier<T> supplier;
+    private final Backoff backoff;
+    private final Clock clock;
+    private volatile State<T> state = State.uninitialized();
+    private volatile @Nullable LazyObserver observer;
+    /** Guarded by this, set only while the supplier runs, so it can be observed only by the initializing thread. */
+    private boolean initializing;
+
+    public RetryingLazy(Supplier<T> supplier, Backoff backoff, Clock clock) {
+        this.supplier = supplier;
+        this.backoff = backoff;
+        this.clock = clock;
+    }
+
+    public RetryingLazy(Supplier<T> supplier, Backoff backoff) {
+        this(supplier, backoff, Clock.systemUTC());
+    }
+
+    /**
+     * @return the value
+     * @throws panda.std.AttemptFailedException if the initialization has failed, or the last failure is still within its backoff window
+     */
+    @Override
+    public T get() {
+        State<T> current = state;
+
+        if (current.initialized) {
+            return current.value;
+        }
+
+        if (current.failure != null && clock.millis() < current.retryAt) {
+            throw new AttemptFailedException("Lazy value has been already initialized with exception", current.failure);
+        }
+
+        State<T> next = attempt(current);
+
+        if (next.initialized) {
+            return next.value;
+        }
+
+        throw new AttemptFailedException(next == current ? "Lazy value has been already initialized with exception" : "Cannot initialize lazy value", next.failure);
+    }
+
+    /**
+     * Get value without throwing exceptions.
+     *
+     * @return value, or the last failure if the initialization has failed (including fail-fast calls during backoff)
+     */
+    public Result<T, Exception> getResult() {
+        State<T> current = state;
+
+        if (!current.initialized && (current.failure == null || clock.millis() >= current.retryAt)) {
+            current = attempt(current);
+        }
+
+        return current.initialized ? Result.ok(current.value) : Result.error(current.failure);
+    }
+
+    /**
+     * Call supplier, unless another thread has already replaced the observed state or the backoff window has not passed yet.
+     */
+    private State<T> attempt(State<T> observed) {
+        LazyObserver currentObserver = observer;
+        long requestTime = currentObserver == null ? 0 : System.nanoTime();
+
+        synchronized (this) {
+            if (initializing) {
+                throw new AttemptFailedException("Recursive initialization of lazy value", null);
+            }
+
+            State<T> current = state;
+
+            if (current != observed || (current.failure != null && clock.millis() < current.retryAt)) {
+                if (currentObserver != null && current != observed) {
+                    currentObserver.onWaited(this, System.nanoTime() - requestTime);
+                }
+
+                return current;
+            }
+
+            long startTime = currentObserver == null ? 0 : System.nanoTime();
+            State<T> next;
+
+            this.initializing = true;
+
+            try {
+                next = State.initialized(supplier.get(), current.attempts);
+            }
+            catch (Exception exception) {
+                int attempts = current.attempts + 1;
+                long delay = backoff.delayMillis(attempts);
+                long now = clock.millis();
+                long retryAt = now + delay < now ? Long.MAX_VALUE : now + delay;
+                next = State.failed(exception, attempts, retryAt);
+            }
+            finally {
+                this.initializing = false;
+            }
+
+            this.state = next;
+
+            // observer is notified once the state is stored, so its exceptions cannot change the outcome
+            if (currentObserver != null) {
+                if (next.initialized) {
+                    currentObserver.onInitialized(this, System.nanoTime() - startTime);
+                }
+                else {
+                    currentObserver.onFailed(this, System.nanoTime() - startTime, next.failure);
+                }
+            }
+
+            return next;
+        }
+    }
+
+    /**
+     * Register observer of initialization events, every failed attempt is reported separately.
+     *
+     * @param observer the observer, or null to remove the current one
+     * @return this lazy value
+     */
+    public RetryingLazy<T> observe(@Nullable LazyObserver observer) {
+        this.observer = observer;
+        return this;
+    }
+
+    public boolean isInitialized() {
+        return state.initialized;
+    }
+
+    public boolean hasFailed() {
+        return state.failure != null;
+    }
+
+    /**
+     * @return number of failed attempts since creation
+     */
+    public int getFailedAttempts() {
+        return state.attempts;
+    }
+
+    /**
+     * Exponential backoff with optional jitter and limit of attempts.
+     */
+    public static final class Backoff {
+
+        private final long initialDelay;
+        private final long maxDelay;
+        private final double multiplier;
+        private final double jitter;
+        private final int maxAttempts;
+
+        private Backoff(long initialDelay, long maxDelay, double multiplier, double jitter, int maxAttempts) {
+            if (initialDelay < 0 || maxDelay < initialDelay) {
+                throw new IllegalArgumentException("Invalid backoff range: " + initialDelay + "ms - " + maxDelay + "ms");
+            }
+
+            if (multiplier < 1) {
+                throw new IllegalArgumentException("Multiplier cannot be lower than 1, got " + multiplier);
+            }
+
+            if (jitter < 0 || jitter > 1) {
+                throw new IllegalArgumentException("Jitter has to be in range [0, 1], got " + jitter);
+            }
+
+            if (maxAttempts < 1) {
+                throw new IllegalArgumentException("Maximum number of attempts must be positive, got " + maxAttempts);
+            }
+
+            this.initialDelay = initialDelay;
+            this.maxDelay = maxDelay;
+            this.multiplier = multiplier;
+            this.jitter = jitter;
+            this.maxAttempts = maxAttempts;
+        }
+
+        /**
+         * Create backoff that doubles the delay after every failure, with 20% jitter and unlimited attempts.
+         */
+        public static Backoff exponential(Duration initialDelay, Duration maxDelay) {
+            return new Backoff(initialDelay.toMillis(), maxDelay.toMillis(), 2.0, 0.2, Integer.MAX_VALUE);
+        }
+
+        public Backoff withMultiplier(double multiplier) {
+            return new Backoff(initialDelay, maxDelay, multiplier, jitter, maxAttempts);
+        }
+
+        /**
+         * @param jitter the fraction of delay that is randomized (0 disables jitter)
+         */
+        public Backoff withJitter(double jitter) {
+            return new Backoff(initialDelay, maxDelay, multiplier, jitter, maxAttempts);
+        }
+
+        /**
+         * @param maxAttempts the number of attempts, after which the last failure is cached permanently
+         */
+        public Backoff withMaxAttempts(int maxAttempts) {
+            return new Backoff(initialDelay, maxDelay, multiplier, jitter, maxAttempts);
+        }
+
+        /**
+         * @return delay before the next attempt, or {@link Long#MAX_VALUE} if attempts are exhausted
+         */
+        long delayMillis(int failedAttempts) {
+            if (failedAttempts >= maxAttempts) {
+                return Long.MAX_VALUE;
+            }
+
+            double delay = Math.min(maxDelay, initialDelay * Math.pow(multiplier, failedAttempts - 1));
+
+            if (jitter > 0) {
+                delay -= delay * jitter * ThreadLocalRandom.current().nextDouble();
+            }
+
+            return (long) delay;
+        }
+
+    }
+
+    private static final class State<T> {
+
+        private static final State<?> UNINITIALIZED = new State<>(false, null, null, 0, 0);
+
+        private final boolean initialized;
+        private final T value;
+        private final Exception failure;
+        private final int attempts;
+        private final long retryAt;
+
+        private State(boolean initialized, T value, Exception failure, int attempts, long retryAt) {
+            this.initialized = initialized;
+            this.value = value;
+            this.failure = failure;
+            this.attempts = attempts;
+            this.retryAt = retryAt;
+        }
+
+        @SuppressWarnings("unchecked")
+        private static <T> State<T> uninitialized() {
+            return (State<T>) UNINITIALIZED;
+        }
+
+        private static <T> State<T> initialized(T value, int attempts) {
+            return new State<>(true, value, null, attempts, 0);
+        }
+
+        private static <T> State<T> failed(Exception failure, int attempts, long retryAt) {
+            return new State<>(false, null, failure, attempts, retryAt);
+        }
+
+    }
+
+}
@@ -0,0 +1,202 @@
+/*
+ * Copyright (c) 2021 dzikoysk
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package panda.std.collection;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.function.LongBinaryOperator;
+
+/**
+ * Open-addressing map with primitive {@code long} keys and values.
+ * Designed for aggregations (counting, summing, min/max) where boxing of keys and per-group accumulators dominates the cost.
+ * Keys of type {@code int} are stored as widened {@code long} values.
+ * The map does not support removal and is not thread-safe.
+ */
+public final class LongLongHashMap {
+
+    private static final int DEFAULT_CAPACITY = 16;
+
+    private long[] keys;
+    private long[] values;
+    private boolean[] used;
+    private int size;
+    private int threshold;
+
+    public LongLongHashMap() {
+        this(DEFAULT_CAPACITY);
+    }
+
+    public LongLongHashMap(int expectedSize) {
+        allocate(PrimitiveMaps.tableSize(expectedSize));
+    }
+
+    private void allocate(int capacity) {
+        this.keys = new long[capacity];
+        this.values = new long[capacity];
+        this.used = new boolean[capacity];
+        this.threshold = PrimitiveMaps.threshold(capacity);
+    }
+
+    public long get(long key, long defaultValue) {
+        int index = indexOf(key);
+        return index == -1 ? defaultValue : values[index];
+    }
+
+    public boolean containsKey(long key) {
+        return indexOf(key) != -1;
+    }
+
+    public void put(long key, long value) {
+        int index = slotOf(key);
+
+        if (used[index]) {
+            values[index] = value;
+            return;
+        }
+
+        insert(index, key, value);
+    }
+
+    /**
+     * Associates the key with the given value if absent, otherwise replaces the current value with {@code merger(current, value)}.
+     *
+     * @param key the key
+     * @param value the value to store or merge
+     * @param merger the merge function, e.g. {@code Long::sum}, {@code Math::min} or {@code Math::max}
+     */
+    public void merge(long key, long value, LongBinaryOperator merger) {
+        int index = slotOf(key);
+
+        if (used[index]) {
+            values[index] = merger.applyAsLong(values[index], value);
+            return;
+        }
+
+        insert(index, key, value);
+    }
+
+    public void add(long key, long delta) {
+        int index = slotOf(key);
+
+        if (used[index]) {
+            values[index] += delta;
+            return;
+        }
+
+        insert(index, key, delta);
+    }
+
+    public LongLongHashMap mergeAll(LongLongHashMap other, LongBinaryOperator merger) {
+        for (int index = 0; index < other.used.length; index++) {
+            if (other.used[index]) {
+                merge(other.keys[index], other.values[index], merger);
+            }
+        }
+
+        return this;
+    }
+
+    public void forEach(EntryConsumer consumer) {
+        for (int index = 0; index < used.length; index++) {
+            if (used[index]) {
+                consumer.accept(keys[index], values[index]);
+            }
+        }
+    }
+
+    public long[] keys() {
+        long[] result = new long[size];
+        int position = 0;
+
+        for (int index = 0; index < used.length; index++) {
+            if (used[index]) {
+                result[position++] = keys[index];
+            }
+        }
+
+        return result;
+    }
+
+    public Map<Long, Long> toMap() {
+        Map<Long, Long> map = new HashMap<>(PrimitiveMaps.hashMapCapacity(size));
+        forEach(map::put);
+        return map;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    private void insert(int index, long key, long value) {
+        keys[index] = key;
+        values[index] = value;
+        used[index] = true;
+
+        if (++size > threshold) {
+            rehash();
+        }
+    }
+
+    private int indexOf(long key) {
+        int index = slotOf(key);
+        return used[index] ? index : -1;
+    }
+
+    private int slotOf(long key) {
+        int mask = keys.length - 1;
+        int index = PrimitiveMaps.hash(key) & mask;
+
+        while (used[index] && keys[index] != key) {
+            index = (index + 1) & mask;
+        }
+
+        return index;
+    }
+
+    private void rehash() {
+        long[] oldKeys = keys;
+        long[] oldValues = values;
+        boolean[] oldUsed = used;
+        allocate(oldKeys.length << 1);
+
+        for (int index = 0; index < oldUsed.length; index++) {
+            if (oldUsed[index]) {
+                int slot = slotOf(oldKeys[index]);
+                keys[slot] = oldKeys[index];
+                values[slot] = oldValues[index];
+                used[slot] = true;
+            }
+        }
+    }
+
+    @Override
+    public String toString() {
+        return toMap().toString();
+    }
+
+    @FunctionalInterface
+    public interface EntryConsumer {
+
+        void accept(long key, long value);
+
+    }
+
+}
@@ -0,0 +1,222 @@
+/*
+ * Copyright (c) 2021 dzikoysk
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package panda.std.collection;
+
+import org.jetbrains.annotations.Nullable;
+import panda.std.Option;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.function.BinaryOperator;
+import java.util.function.Function;
+import java.util.function.LongFunction;
+
+/**
+ * Open-addressing map with primitive {@code long} keys.
+ * Keys of type {@code int} are stored as widened {@code long} values.
+ * The map does not support removal and is not thread-safe.
+ *
+ * @param <V> type of values
+ */
+public final class LongObjectHashMap<V> {
+
+    private static final int DEFAULT_CAPACITY = 16;
+
+    private long[] keys;
+    private Object[] values;
+    private boolean[] used;
+    private int size;
+    private int threshold;
+
+    public LongObjectHashMap() {
+        this(DEFAULT_CAPACITY);
+    }
+
+    public LongObjectHashMap(int expectedSize) {
+        allocate(PrimitiveMaps.tableSize(expectedSize));
+    }
+
+    private void allocate(int capacity) {
+        this.keys = new long[capacity];
+        this.values = new Object[capacity];
+        this.used = new boolean[capacity];
+        this.threshold = PrimitiveMaps.threshold(capacity);
+    }
+
+    @SuppressWarnings("unchecked")
+    public @Nullable V get(long key) {
+        int index = slotOf(key);
+        return used[index] ? (V) values[index] : null;
+    }
+
+    public Option<V> find(long key) {
+        return Option.of(get(key));
+    }
+
+    public boolean containsKey(long key) {
+        return used[slotOf(key)];
+    }
+
+    public void put(long key, V value) {
+        int index = slotOf(key);
+
+        if (used[index]) {
+            values[index] = value;
+            return;
+        }
+
+        insert(index, key, value);
+    }
+
+    @SuppressWarnings("unchecked")
+    public V computeIfAbsent(long key, LongFunction<? extends V> mappingFunction) {
+        int index = slotOf(key);
+
+        if (used[index]) {
+            return (V) values[index];
+        }
+
+        V value = mappingFunction.apply(key);
+        insert(index, key, value);
+        return value;
+    }
+
+    @SuppressWarnings("unchecked")
+    public LongObjectHashMap<V> mergeAll(LongObjectHashMap<V> other, BinaryOperator<V> merger) {
+        for (int index = 0; index < other.used.length; index++) {
+            if (!other.used[index]) {
+                continue;
+            }
+
+            int slot = slotOf(other.keys[index]);
+            V value = (V) other.values[index];
+
+            if (used[slot]) {
+                values[slot] = merger.apply((V) values[slot], value);
+            }
+            else {
+                insert(slot, other.keys[index], value);
+            }
+        }
+
+        return this;
+    }
+
+    /**
+     * Replaces every value with the result of the given function.
+     *
+     * @param function the function to apply
+     * @param <R> type of mapped values
+     * @return this map with mapped values
+     */
+    @SuppressWarnings("unchecked")
+    public <R> LongObjectHashMap<R> replaceAll(Function<? super V, ? extends R> function) {
+        for (int index = 0; index < used.length; index++) {
+            if (used[index]) {
+                values[index] = function.apply((V) values[index]);
+            }
+        }
+
+        return (LongObjectHashMap<R>) this;
+    }
+
+    @SuppressWarnings("unchecked")
+    public void forEach(EntryConsumer<? super V> consumer) {
+        for (int index = 0; index < used.length; index++) {
+            if (used[index]) {
+                consumer.accept(keys[index], (V) values[index]);
+            }
+        }
+    }
+
+    public long[] keys() {
+        long[] result = new long[size];
+        int position = 0;
+
+        for (int index = 0; index < used.length; index++) {
+            if (used[index]) {
+                result[position++] = keys[index];
+            }
+        }
+
+        return result;
+    }
+
+    public Map<Long, V> toMap() {
+        Map<Long, V> map = new HashMap<>(PrimitiveMaps.hashMapCapacity(size));
+        forEach(map::put);
+        return map;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    private void insert(int index, long key, V value) {
+        keys[index] = key;
+        values[index] = value;
+        used[index] = true;
+
+        if (++size > threshold) {
+            rehash();
+        }
+    }
+
+    private int slotOf(long key) {
+        int mask = keys.length - 1;
+        int index = PrimitiveMaps.hash(key) & mask;
+
+        while (used[index] && keys[index] != key) {
+            index = (index + 1) & mask;
+        }
+
+        return index;
+    }
+
+    private void rehash() {
+        long[] oldKeys = keys;
+        Object[] oldValues = values;
+        boolean[] oldUsed = used;
+        allocate(oldKeys.length << 1);
+
+        for (int index = 0; index < oldUsed.length; index++) {
+            if (oldUsed[index]) {
+                int slot = slotOf(oldKeys[index]);
+                keys[slot] = oldKeys[index];
+                values[slot] = oldValues[index];
+                used[slot] = true;
+            }
+        }
+    }
+
+    @Override
+    public String toString() {
+        return toMap().toString();
+    }
+
+    @FunctionalInterface
+    public interface EntryConsumer<V> {
+
+        void accept(long key, V value);
+
+    }
+
+}
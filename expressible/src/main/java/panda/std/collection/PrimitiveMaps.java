@@ -0,0 +1,58 @@
+/*
+ * Copyright (c) 2021 dzikoysk
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package panda.std.collection;
+
+/**
+ * Sizing and hashing helpers shared by primitive-keyed maps and pre-sized collectors.
+ */
+public final class PrimitiveMaps {
+
+    static final float LOAD_FACTOR = 0.5f;
+    static final int MAXIMUM_CAPACITY = 1 << 30;
+
+    private PrimitiveMaps() { }
+
+    static int tableSize(int expectedSize) {
+        if (expectedSize < 0) {
+            throw new IllegalArgumentException("Expected size cannot be negative: " + expectedSize);
+        }
+
+        long required = Math.max(2L, (long) Math.ceil(expectedSize / LOAD_FACTOR) + 1);
+        int capacity = Integer.highestOneBit((int) Math.min(required, MAXIMUM_CAPACITY));
+        return capacity < required && capacity < MAXIMUM_CAPACITY ? capacity << 1 : capacity;
+    }
+
+    static int threshold(int capacity) {
+        return (int) (capacity * LOAD_FACTOR);
+    }
+
+    static int hash(long key) {
+        long hash = (key ^ (key >>> 33)) * 0xFF51AFD7ED558CCDL;
+        return (int) (hash ^ (hash >>> 33));
+    }
+
+    /**
+     * Compute initial capacity of {@link java.util.HashMap} that holds the expected number of entries without rehashing.
+     *
+     * @param expectedSize the expected number of entries
+     * @return the initial capacity for default load factor
+     */
+    public static int hashMapCapacity(long expectedSize) {
+        return (int) Math.min(Integer.MAX_VALUE, (long) (expectedSize / 0.75f) + 1);
+    }
+
+}
@@ -0,0 +1,88 @@
+/*
+ * Copyright (c) 2021 dzikoysk
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package panda.std.function;
+
+/**
+ * Count-min sketch of access frequency with 4-bit counters, used by {@link panda.std.function.MemoizingCache} to decide which entries should be admitted.
+ * Counters are halved periodically, so the sketch reflects recent popularity.
+ * Not thread-safe, guarded by the cache policy lock.
+ */
+final class FrequencySketch {
+
+    private static final int[] SEEDS = { 0x97CB3127, 0xB4B82E5F, 0x6C5D2B8D, 0xE15F8C7B };
+    private static final long RESET_MASK = 0x7777777777777777L;
+
+    private final long[] table;
+    private final int mask;
+    private final int sampleSize;
+    private int size;
+
+    FrequencySketch(int maximumSize) {
+        int length = Integer.highestOneBit(Math.max(8, Math.min(1 << 30, maximumSize)) - 1) << 1;
+        this.table = new long[length];
+        this.mask = length - 1;
+        this.sampleSize = (int) Math.min(Integer.MAX_VALUE, 10L * Math.max(1, maximumSize));
+    }
+
+    int frequency(int hash) {
+        int frequency = Integer.MAX_VALUE;
+
+        for (int function = 0; function < SEEDS.length; function++) {
+            int slot = slot(hash, function);
+            frequency = Math.min(frequency, (int) ((table[slot & mask] >>> shift(slot)) & 0xF));
+        }
+
+        return frequency;
+    }
+
+    void increment(int hash) {
+        boolean added = false;
+
+        for (int function = 0; function < SEEDS.length; function++) {
+            int slot = slot(hash, function);
+            int index = slot & mask;
+            int shift = shift(slot);
+
+            if (((table[index] >>> shift) & 0xF) < 15) {
+                table[index] += 1L << shift;
+                added = true;
+            }
+        }
+
+        if (added && ++size >= sampleSize) {
+            reset();
+        }
+    }
+
+    private void reset() {
+        for (int index = 0; index < table.length; index++) {
+            table[index] = (table[index] >>> 1) & RESET_MASK;
+        }
+
+        this.size /= 2;
+    }
+
+    private static int slot(int hash, int function) {
+        int slot = (hash + SEEDS[function]) * 0x9E3779B9;
+        return slot ^ (slot >>> 17);
+    }
+
+    private static int shift(int slot) {
+        return ((slot >>> 26) & 0xF) << 2;
+    }
+
+}
@@ -0,0 +1,239 @@
+/*
+ * Copyright (c) 2021 dzikoysk
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package panda.std.function;
+
+import java.util.Objects;
+import java.util.function.BiFunction;
+import java.util.function.Function;
+
+/**
+ * Wraps pure functions with bounded {@link panda.std.function.MemoizingCache}.
+ * Single argument is used as a key directly, multiple arguments are stored in a single flat key object.
+ * Every memoized function requires its own cache, pass an explicit cache to read hit and miss metrics.
+ */
+public final class Memoizer {
+
+    private Memoizer() { }
+
+    public static <A, R> Function<A, R> memoize(Function<A, R> function, int maximumSize) {
+        return memoize(function, new MemoizingCache<>(maximumSize));
+    }
+
+    @SuppressWarnings("unchecked")
+    public static <A, R> Function<A, R> memoize(Function<A, R> function, MemoizingCache<Object, R> cache) {
+        ThrowingFunction<Object, R, RuntimeException> loader = key -> function.apply((A) key);
+        return argument -> cache.get(argument, loader);
+    }
+
+    public static <A, B, R> BiFunction<A, B, R> memoize(BiFunction<A, B, R> function, int maximumSize) {
+        return memoize(function, new MemoizingCache<>(maximumSize));
+    }
+
+    @SuppressWarnings("unchecked")
+    public static <A, B, R> BiFunction<A, B, R> memoize(BiFunction<A, B, R> function, MemoizingCache<Object, R> cache) {
+        ThrowingFunction<Object, R, RuntimeException> loader = key -> {
+            Key2 arguments = (Key2) key;
+            return function.apply((A) arguments.first, (B) arguments.second);
+        };
+        return (a, b) -> cache.get(new Key2(a, b), loader);
+    }
+
+    public static <A, B, C, R> TriFunction<A, B, C, R> memoize(TriFunction<A, B, C, R> function, int maximumSize) {
+        return memoize(function, new MemoizingCache<>(maximumSize));
+    }
+
+    @SuppressWarnings("unchecked")
+    public static <A, B, C, R> TriFunction<A, B, C, R> memoize(TriFunction<A, B, C, R> function, MemoizingCache<Object, R> cache) {
+        ThrowingFunction<Object, R, RuntimeException> loader = key -> {
+            Key3 arguments = (Key3) key;
+            return function.apply((A) arguments.first, (B) arguments.second, (C) arguments.third);
+        };
+        return (a, b, c) -> cache.get(new Key3(a, b, c), loader);
+    }
+
+    public static <A, B, C, D, R> QuadFunction<A, B, C, D, R> memoize(QuadFunction<A, B, C, D, R> function, int maximumSize) {
+        return memoize(function, new MemoizingCache<>(maximumSize));
+    }
+
+    @SuppressWarnings("unchecked")
+    public static <A, B, C, D, R> QuadFunction<A, B, C, D, R> memoize(QuadFunction<A, B, C, D, R> function, MemoizingCache<Object, R> cache) {
+        ThrowingFunction<Object, R, RuntimeException> loader = key -> {
+            Key4 arguments = (Key4) key;
+            return function.apply((A) arguments.first, (B) arguments.second, (C) arguments.third, (D) arguments.fourth);
+        };
+        return (a, b, c, d) -> cache.get(new Key4(a, b, c, d), loader);
+    }
+
+    public static <A, R, E extends Throwable> ThrowingFunction<A, R, E> memoizeThrowing(ThrowingFunction<A, R, E> function, int maximumSize) {
+        return memoizeThrowing(function, new MemoizingCache<>(maximumSize));
+    }
+
+    @SuppressWarnings("unchecked")
+    public static <A, R, E extends Throwable> ThrowingFunction<A, R, E> memoizeThrowing(ThrowingFunction<A, R, E> function, MemoizingCache<Object, R> cache) {
+        ThrowingFunction<Object, R, E> loader = key -> function.apply((A) key);
+        return argument -> cache.get(argument, loader);
+    }
+
+    public static <A, B, R, E extends Throwable> ThrowingBiFunction<A, B, R, E> memoizeThrowing(ThrowingBiFunction<A, B, R, E> function, int maximumSize) {
+        return memoizeThrowing(function, new MemoizingCache<>(maximumSize));
+    }
+
+    @SuppressWarnings("unchecked")
+    public static <A, B, R, E extends Throwable> ThrowingBiFunction<A, B, R, E> memoizeThrowing(ThrowingBiFunction<A, B, R, E> function, MemoizingCache<Object, R> cache) {
+        ThrowingFunction<Object, R, E> loader = key -> {
+            Key2 arguments = (Key2) key;
+            return function.apply((A) arguments.first, (B) arguments.second);
+        };
+        return (a, b) -> cache.get(new Key2(a, b), loader);
+    }
+
+    public static <A, B, C, R, E extends Throwable> ThrowingTriFunction<A, B, C, R, E> memoizeThrowing(ThrowingTriFunction<A, B, C, R, E> function, int maximumSize) {
+        return memoizeThrowing(function, new MemoizingCache<>(maximumSize));
+    }
+
+    @SuppressWarnings("unchecked")
+    public static <A, B, C, R, E extends Throwable> ThrowingTriFunction<A, B, C, R, E> memoizeThrowing(ThrowingTriFunction<A, B, C, R, E> function, MemoizingCache<Object, R> cache) {
+        ThrowingFunction<Object, R, E> loader = key -> {
+            Key3 arguments = (Key3) key;
+            return function.apply((A) arguments.first, (B) arguments.second, (C) arguments.third);
+        };
+        return (a, b, c) -> cache.get(new Key3(a, b, c), loader);
+    }
+
+    public static <A, B, C, D, R, E extends Throwable> ThrowingQuadFunction<A, B, C, D, R, E> memoizeThrowing(ThrowingQuadFunction<A, B, C, D, R, E> function, int maximumSize) {
+        return memoizeThrowing(function, new MemoizingCache<>(maximumSize));
+    }
+
+    @SuppressWarnings("unchecked")
+    public static <A, B, C, D, R, E extends Throwable> ThrowingQuadFunction<A, B, C, D, R, E> memoizeThrowing(ThrowingQuadFunction<A, B, C, D, R, E> function, MemoizingCache<Object, R> cache) {
+        ThrowingFunction<Object, R, E> loader = key -> {
+            Key4 arguments = (Key4) key;
+            return function.apply((A) arguments.first, (B) arguments.second, (C) arguments.third, (D) arguments.fourth);
+        };
+        return (a, b, c, d) -> cache.get(new Key4(a, b, c, d), loader);
+    }
+
+    private static final class Key2 {
+
+        private final Object first;
+        private final Object second;
+        private final int hash;
+
+        private Key2(Object first, Object second) {
+            this.first = first;
+            this.second = second;
+            this.hash = 31 * Objects.hashCode(first) + Objects.hashCode(second);
+        }
+
+        @Override
+        public boolean equals(Object to) {
+            if (this == to) {
+                return true;
+            }
+
+            if (!(to instanceof Key2)) {
+                return false;
+            }
+
+            Key2 other = (Key2) to;
+            return hash == other.hash && Objects.equals(first, other.first) && Objects.equals(second, other.second);
+        }
+
+        @Override
+        public int hashCode() {
+            return hash;
+        }
+
+    }
+
+    private static final class Key3 {
+
+        private final Object first;
+        private final Object second;
+        private final Object third;
+        private final int hash;
+
+        private Key3(Object first, Object second, Object third) {
+            this.first = first;
+            this.second = second;
+            this.third = third;
+            this.hash = 31 * (31 * Objects.hashCode(first) + Objects.hashCode(second)) + Objects.hashCode(third);
+        }
+
+        @Override
+        public boolean equals(Object to) {
+            if (this == to) {
+                return true;
+            }
+
+            if (!(to instanceof Key3)) {
+                return false;
+            }
+
+            Key3 other = (Key3) to;
+            return hash == other.hash && Objects.equals(first, other.first) && Objects.equals(second, other.second) && Objects.equals(third, other.third);
+        }
+
+        @Override
+        public int hashCode() {
+            return hash;
+        }
+
+    }
+
+    private static final class Key4 {
+
+        private final Object first;
+        private final Object second;
+        private final Object third;
+        private final Object fourth;
+        private final int hash;
+
+        private Key4(Object first, Object second, Object third, Object fourth) {
+            this.first = first;
+            this.second = second;
+            this.third = third;
+            this.fourth = fourth;
+            this.hash = 31 * (31 * (31 * Objects.hashCode(first) + Objects.hashCode(second)) + Objects.hashCode(third)) + Objects.hashCode(fourth);
+        }
+
+        @Override
+        public boolean equals(Object to) {
+            if (this == to) {
+                return true;
+            }
+
+            if (!(to instanceof Key4)) {
+                return false;
+            }
+
+            Key4 other = (Key4) to;
+            return hash == other.hash
+                    && Objects.equals(first, other.first)
+                    && Objects.equals(second, other.second)
+                    && Objects.equals(third, other.third)
+                    && Objects.equals(fourth, other.fourth);
+        }
+
+        @Override
+        public int hashCode() {
+            return hash;
+        }
+
+    }
+
+}
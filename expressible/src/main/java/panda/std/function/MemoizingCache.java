@@ -0,0 +1,384 @@
+/*
+ * Copyright (c) 2021 dzikoysk
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package panda.std.function;
+
+import org.jetbrains.annotations.Nullable;
+import panda.std.Option;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Concurrent cache with bounded size, used by {@link panda.std.function.Memoizer}.
+ * Lookups of loaded values are lock-free, while concurrent misses of the same key wait for a single load.
+ * Eviction follows W-TinyLFU: new entries enter a small LRU window, and entries leaving the window are admitted to the main LRU space
+ * only if their access frequency (estimated by {@link panda.std.function.FrequencySketch}) is higher than frequency of the main space victim.
+ * Accesses are recorded only when the policy lock is free, so contended hits do not wait for each other.
+ * Failed loads are not cached.
+ *
+ * @param <K> type of keys
+ * @param <V> type of values
+ */
+public final class MemoizingCache<K, V> {
+
+    private static final Object NULL_KEY = new Object();
+
+    private final ConcurrentHashMap<Object, Node<V>> map;
+    private final int windowMaximumSize;
+    private final int mainMaximumSize;
+    private final ReentrantLock policyLock = new ReentrantLock();
+    private final FrequencySketch sketch;
+    private final AccessQueue<V> window = new AccessQueue<>();
+    private final AccessQueue<V> main = new AccessQueue<>();
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder waits = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+    private final LongAdder loadFailures = new LongAdder();
+
+    public MemoizingCache(int maximumSize) {
+        if (maximumSize < 1) {
+            throw new IllegalArgumentException("Maximum size must be positive, got " + maximumSize);
+        }
+
+        this.map = new ConcurrentHashMap<>(Math.min(maximumSize, 1 << 16));
+        this.windowMaximumSize = Math.max(1, maximumSize / 100);
+        this.mainMaximumSize = maximumSize - windowMaximumSize;
+        this.sketch = new FrequencySketch(maximumSize);
+    }
+
+    /**
+     * Get cached value or load it using the given function.
+     * If the value is being loaded by another thread, the current thread waits for the result.
+     *
+     * @param key the key
+     * @param loader the function used to compute value of absent key
+     * @param <E> type of exception thrown by loader
+     * @return cached or loaded value
+     * @throws E if loader has failed (also thrown to threads waiting for this load)
+     */
+    public <E extends Throwable> V get(K key, ThrowingFunction<? super K, ? extends V, E> loader) throws E {
+        Object mapKey = key == null ? NULL_KEY : key;
+        Node<V> node = map.get(mapKey);
+
+        if (node == null) {
+            Node<V> created = new Node<>(mapKey);
+            node = map.putIfAbsent(mapKey, created);
+
+            if (node == null) {
+                return load(created, key, loader);
+            }
+        }
+
+        if (node.loaded) {
+            hits.increment();
+            recordAccess(node);
+            return node.value;
+        }
+
+        waits.increment();
+        return node.await();
+    }
+
+    private <E extends Throwable> V load(Node<V> node, K key, ThrowingFunction<? super K, ? extends V, E> loader) throws E {
+        misses.increment();
+        V value;
+
+        try {
+            value = loader.apply(key);
+        }
+        catch (Throwable throwable) {
+            loadFailures.increment();
+            map.remove(node.key, node);
+            node.fail(throwable);
+            throw throwable;
+        }
+
+        node.complete(value);
+        recordInsert(node);
+        return value;
+    }
+
+    public Option<V> getIfPresent(K key) {
+        Node<V> node = map.get(key == null ? NULL_KEY : key);
+        return node != null && node.loaded ? Option.of(node.value) : Option.none();
+    }
+
+    public void invalidateAll() {
+        policyLock.lock();
+
+        try {
+            map.clear();
+            window.clear();
+            main.clear();
+        }
+        finally {
+            policyLock.unlock();
+        }
+    }
+
+    private void recordAccess(Node<V> node) {
+        if (!policyLock.tryLock()) {
+            return;
+        }
+
+        try {
+            sketch.increment(node.key.hashCode());
+
+            if (node.queue == window) {
+                window.moveToTail(node);
+            }
+            else if (node.queue == main) {
+                main.moveToTail(node);
+            }
+        }
+        finally {
+            policyLock.unlock();
+        }
+    }
+
+    private void recordInsert(Node<V> node) {
+        policyLock.lock();
+
+        try {
+            if (map.get(node.key) != node) {
+                return;
+            }
+
+            sketch.increment(node.key.hashCode());
+            window.add(node);
+
+            while (window.size > windowMaximumSize) {
+                admit(window.pollFirst());
+            }
+        }
+        finally {
+            policyLock.unlock();
+        }
+    }
+
+    /**
+     * Move candidate from window to the main space, if it is more popular than the main space victim.
+     */
+    private void admit(Node<V> candidate) {
+        if (main.size < mainMaximumSize) {
+            main.add(candidate);
+            return;
+        }
+
+        Node<V> victim = main.peekFirst();
+
+        if (victim != null && sketch.frequency(candidate.key.hashCode()) > sketch.frequency(victim.key.hashCode())) {
+            main.remove(victim);
+            evict(victim);
+            main.add(candidate);
+        }
+        else {
+            evict(candidate);
+        }
+    }
+
+    private void evict(Node<V> node) {
+        if (map.remove(node.key, node)) {
+            evictions.increment();
+        }
+    }
+
+    public int size() {
+        return map.size();
+    }
+
+    public long getHitCount() {
+        return hits.sum();
+    }
+
+    public long getMissCount() {
+        return misses.sum();
+    }
+
+    /**
+     * @return number of requests that joined a load already in progress (counted neither as hits nor misses)
+     */
+    public long getWaitCount() {
+        return waits.sum();
+    }
+
+    public long getEvictionCount() {
+        return evictions.sum();
+    }
+
+    public long getLoadFailureCount() {
+        return loadFailures.sum();
+    }
+
+    /**
+     * @return ratio of hits to all hits and misses, or {@link Double#NaN} if cache has not been used yet
+     */
+    public double getHitRate() {
+        long hitCount = getHitCount();
+        long requests = hitCount + getMissCount();
+        return requests == 0 ? Double.NaN : (double) hitCount / requests;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("MemoizingCache{size=%d, hits=%d, misses=%d, evictions=%d}", size(), getHitCount(), getMissCount(), getEvictionCount());
+    }
+
+    private static final class Node<V> {
+
+        private final Object key;
+        private final CountDownLatch latch = new CountDownLatch(1);
+        private @Nullable Thread loadingThread = Thread.currentThread();
+        private volatile boolean loaded;
+        private @Nullable V value;
+        private @Nullable Throwable failure;
+        private @Nullable AccessQueue<V> queue;
+        private @Nullable Node<V> previous;
+        private @Nullable Node<V> next;
+
+        private Node(Object key) {
+            this.key = key;
+        }
+
+        private void complete(V value) {
+            this.value = value;
+            this.loadingThread = null;
+            this.loaded = true;
+            latch.countDown();
+        }
+
+        private void fail(Throwable failure) {
+            this.failure = failure;
+            this.loadingThread = null;
+            latch.countDown();
+        }
+
+        @SuppressWarnings("unchecked")
+        private <E extends Throwable> V await() throws E {
+            if (loadingThread == Thread.currentThread()) {
+                throw new IllegalStateException("Recursive load of key " + key);
+            }
+
+            boolean interrupted = false;
+
+            while (true) {
+                try {
+                    latch.await();
+                    break;
+                }
+                catch (InterruptedException interruptedException) {
+                    interrupted = true;
+                }
+            }
+
+            if (interrupted) {
+                Thread.currentThread().interrupt();
+            }
+
+            if (failure == null) {
+                return value;
+            }
+
+            // failure has been thrown by the same loader, so it is either unchecked or E
+            throw (E) failure;
+        }
+
+    }
+
+    /**
+     * Intrusive doubly-linked list of nodes ordered from the least to the most recently used.
+     */
+    private static final class AccessQueue<V> {
+
+        private @Nullable Node<V> head;
+        private @Nullable Node<V> tail;
+        private int size;
+
+        private void add(Node<V> node) {
+            node.queue = this;
+            node.previous = tail;
+            node.next = null;
+
+            if (tail == null) {
+                head = node;
+            }
+            else {
+                tail.next = node;
+            }
+
+            tail = node;
+            size++;
+        }
+
+        private void remove(Node<V> node) {
+            if (node.previous == null) {
+                head = node.next;
+            }
+            else {
+                node.previous.next = node.next;
+            }
+
+            if (node.next == null) {
+                tail = node.previous;
+            }
+            else {
+                node.next.previous = node.previous;
+            }
+
+            node.previous = null;
+            node.next = null;
+            node.queue = null;
+            size--;
+        }
+
+        private void moveToTail(Node<V> node) {
+            if (node != tail) {
+                remove(node);
+                add(node);
+            }
+        }
+
+        private @Nullable Node<V> peekFirst() {
+            return head;
+        }
+
+        private Node<V> pollFirst() {
+            Node<V> first = head;
+            remove(first);
+            return first;
+        }
+
+        private void clear() {
+            for (Node<V> node = head; node != null; ) {
+                Node<V> next = node.next;
+                node.previous = null;
+                node.next = null;
+                node.queue = null;
+                node = next;
+            }
+
+            head = null;
+            tail = null;
+            size = 0;
+        }
+
+    }
+
+}
@@ -16,28 +16,43 @@
 
 package panda.std.reactive;
 
-import java.util.ArrayList;
-import java.util.List;
+import org.jetbrains.annotations.Nullable;
+
 import java.util.Objects;
 import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicReference;
 import java.util.function.Consumer;
 import java.util.function.Function;
 import java.util.function.Supplier;
 
 /**
  * Observable container for value that could be computed in the future.
- * This container is similar to {@link java.util.concurrent.CompletableFuture}, but without the concurrency layer.
+ * This container is similar to {@link java.util.concurrent.CompletableFuture}, but without the execution layer.
+ * <p>
+ * Completable is thread-safe and lock-free: it may be completed and subscribed concurrently from different threads,
+ * and every subscriber is notified exactly once, on the thread that completes the value
+ * or on the subscribing thread if the value is already available.
+ * Use {@code *Async} stages to run callbacks on the given executor instead.
+ * Completable has no failure channel, so if an async callback throws or the executor rejects it,
+ * the exception is passed to the uncaught exception handler of the current thread and the dependent stage never completes.
  *
  * @param <VALUE> type of value to store
  */
 public class Completable<VALUE> implements Publisher<Completable<VALUE>, VALUE> {
 
-    private VALUE value;
-    private boolean ready;
-    private List<Subscriber<? super VALUE>> subscribers = new ArrayList<>(3);
+    private static final Executor DEFAULT_EXECUTOR = createDefaultExecutor();
+
+    /**
+     * Either {@code null} (pending, no subscribers), a single {@link Subscriber} stored inline,
+     * a {@link SubscriberNode} stack of subscribers pushed with CAS, or {@link Completion} holding the value.
+     */
+    private final AtomicReference<Object> state = new AtomicReference<>();
 
     public Completable() {
-        this.value = null;
     }
 
     public static <VALUE> Completable<VALUE> completed(VALUE value) {
@@ -49,55 +64,120 @@ public class Completable<VALUE> implements Publisher<Completable<VALUE>, VALUE>
     }
 
     public boolean isReady() {
-        return ready;
+        return state.get() instanceof Completion;
     }
 
     public boolean isUnprepared() {
         return !isReady();
     }
 
+    @SuppressWarnings("unchecked")
     public VALUE get() {
-        if (isReady()) {
-            return value;
+        Object current = state.get();
+
+        if (current instanceof Completion) {
+            return ((Completion<VALUE>) current).value;
         }
 
         throw new IllegalStateException("Option has not been completed");
     }
 
+    @SuppressWarnings("unchecked")
     public <ERROR extends Exception> VALUE orThrow(Supplier<ERROR> exception) throws ERROR {
-        if (isReady()) {
-            return value;
+        Object current = state.get();
+
+        if (current instanceof Completion) {
+            return ((Completion<VALUE>) current).value;
         }
 
         throw exception.get();
     }
 
     @Override
+    @SuppressWarnings("unchecked")
     public Completable<VALUE> subscribe(Subscriber<? super VALUE> subscriber) {
-        if (isReady()) {
-            subscriber.onComplete(get());
-        }
-        else {
-            subscribers.add(subscriber);
+        Objects.requireNonNull(subscriber);
+
+        while (true) {
+            Object current = state.get();
+
+            if (current instanceof Completion) {
+                subscriber.onComplete(((Completion<VALUE>) current).value);
+                return this;
+            }
+
+            Object next = current == null
+                    ? subscriber
+                    : new SubscriberNode(subscriber, current instanceof SubscriberNode ? (SubscriberNode) current : new SubscriberNode((Subscriber<?>) current, null));
+
+            if (state.compareAndSet(current, next)) {
+                return this;
+            }
         }
+    }
+
+    public Completable<VALUE> complete(VALUE value) {
+        Completion<VALUE> completion = new Completion<>(Objects.requireNonNull(value));
+        Object current;
+
+        do {
+            current = state.get();
+
+            if (current instanceof Completion) {
+                return this;
+            }
+        } while (!state.compareAndSet(current, completion));
 
+        notifySubscribers(current, value);
         return this;
     }
 
-    public Completable<VALUE> complete(VALUE value) {
-        if (isReady()) {
-            return this;
+    /**
+     * Subscribers detached by the successful CAS are no longer reachable by other threads,
+     * so the stack can be reversed in place to notify them in subscription order.
+     * Every subscriber receives the value even if previous ones throw,
+     * the first exception is rethrown afterwards with the others added as suppressed.
+     */
+    @SuppressWarnings("unchecked")
+    private void notifySubscribers(@Nullable Object subscribers, VALUE value) {
+        if (subscribers == null) {
+            return;
+        }
+
+        if (!(subscribers instanceof SubscriberNode)) {
+            ((Subscriber<? super VALUE>) subscribers).onComplete(value);
+            return;
         }
 
-        this.ready = true;
-        this.value = Objects.requireNonNull(value);
+        SubscriberNode reversed = null;
+        SubscriberNode node = (SubscriberNode) subscribers;
 
-        for (Subscriber<? super VALUE> subscriber : subscribers) {
-            subscriber.onComplete(value);
+        while (node != null) {
+            SubscriberNode next = node.next;
+            node.next = reversed;
+            reversed = node;
+            node = next;
         }
 
-        subscribers = null;
-        return this;
+        RuntimeException failure = null;
+
+        for (node = reversed; node != null; node = node.next) {
+            try {
+                ((Subscriber<? super VALUE>) node.subscriber).onComplete(value);
+            }
+            catch (RuntimeException exception) {
+                if (failure == null) {
+                    failure = exception;
+                }
+                else if (failure != exception) {
+                    failure.addSuppressed(exception);
+                }
+            }
+        }
+
+        if (failure != null) {
+            throw failure;
+        }
     }
 
     public Completable<VALUE> then(Consumer<? super VALUE> consumer) {
@@ -117,10 +197,142 @@ public class Completable<VALUE> implements Publisher<Completable<VALUE>, VALUE>
         return mappedOption;
     }
 
+    /**
+     * Compute the value on the default executor and complete this completable with it.
+     *
+     * @param supplier the supplier of value
+     * @return this completable
+     * @see #getDefaultExecutor()
+     */
+    public Completable<VALUE> completeAsync(Supplier<? extends VALUE> supplier) {
+        return completeAsync(supplier, DEFAULT_EXECUTOR);
+    }
+
+    /**
+     * Compute the value on the given executor and complete this completable with it.
+     * If the supplier throws, this completable is never completed.
+     *
+     * @param supplier the supplier of value
+     * @param executor the executor that runs the supplier
+     * @return this completable
+     * @throws java.util.concurrent.RejectedExecutionException if the executor does not accept the task
+     */
+    public Completable<VALUE> completeAsync(Supplier<? extends VALUE> supplier, Executor executor) {
+        executor.execute(guarded(() -> complete(supplier.get())));
+        return this;
+    }
+
+    public Completable<VALUE> thenAsync(Consumer<? super VALUE> consumer) {
+        return thenAsync(consumer, DEFAULT_EXECUTOR);
+    }
+
+    /**
+     * Subscribe the consumer, which is called on the given executor instead of the thread that completes the value.
+     *
+     * @param consumer the consumer of value
+     * @param executor the executor that runs the consumer
+     * @return this completable
+     */
+    public Completable<VALUE> thenAsync(Consumer<? super VALUE> consumer, Executor executor) {
+        subscribe(completedValue -> execute(executor, () -> consumer.accept(completedValue)));
+        return this;
+    }
+
+    public <R> Completable<R> thenApplyAsync(Function<? super VALUE, R> map) {
+        return thenApplyAsync(map, DEFAULT_EXECUTOR);
+    }
+
+    public <R> Completable<R> thenApplyAsync(Function<? super VALUE, R> map, Executor executor) {
+        Completable<R> mappedOption = new Completable<>();
+        subscribe(completedValue -> execute(executor, () -> mappedOption.complete(map.apply(completedValue))));
+        return mappedOption;
+    }
+
+    public <R> Completable<R> thenComposeAsync(Function<? super VALUE, ? extends Completable<R>> map) {
+        return thenComposeAsync(map, DEFAULT_EXECUTOR);
+    }
+
+    public <R> Completable<R> thenComposeAsync(Function<? super VALUE, ? extends Completable<R>> map, Executor executor) {
+        Completable<R> mappedOption = new Completable<>();
+        subscribe(completedValue -> execute(executor, () -> map.apply(completedValue).then(mappedOption::complete)));
+        return mappedOption;
+    }
+
     public CompletableFuture<VALUE> toFuture() {
         CompletableFuture<VALUE> future = new CompletableFuture<>();
         then(future::complete);
         return future;
     }
 
+    /**
+     * Run the task of an async stage without affecting the completing thread and other subscribers,
+     * failures of the task and rejected execution are reported to the uncaught exception handler.
+     */
+    private static void execute(Executor executor, Runnable task) {
+        try {
+            executor.execute(guarded(task));
+        }
+        catch (RejectedExecutionException rejected) {
+            reportFailure(rejected);
+        }
+    }
+
+    private static Runnable guarded(Runnable task) {
+        return () -> {
+            try {
+                task.run();
+            }
+            catch (RuntimeException exception) {
+                reportFailure(exception);
+            }
+        };
+    }
+
+    private static void reportFailure(Throwable failure) {
+        Thread thread = Thread.currentThread();
+        thread.getUncaughtExceptionHandler().uncaughtException(thread, failure);
+    }
+
+    /**
+     * Executor used by {@code *Async} stages without explicit executor.
+     * It starts a new virtual thread per task if the runtime supports them,
+     * otherwise it falls back to {@link java.util.concurrent.ForkJoinPool#commonPool()}.
+     *
+     * @return the default executor
+     */
+    public static Executor getDefaultExecutor() {
+        return DEFAULT_EXECUTOR;
+    }
+
+    private static Executor createDefaultExecutor() {
+        try {
+            return (Executor) Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+        }
+        catch (ReflectiveOperationException | RuntimeException unsupported) {
+            return ForkJoinPool.commonPool();
+        }
+    }
+
+    private static final class Completion<VALUE> {
+
+        private final VALUE value;
+
+        private Completion(VALUE value) {
+            this.value = value;
+        }
+
+    }
+
+    private static final class SubscriberNode {
+
+        private final Subscriber<?> subscriber;
+        private @Nullable SubscriberNode next;
+
+        private SubscriberNode(Subscriber<?> subscriber, @Nullable SubscriberNode next) {
+            this.subscriber = subscriber;
+            this.next = next;
+        }
+
+    }
+
 }
@@ -0,0 +1,112 @@
+/*
+ * Copyright (c) 2021 dzikoysk
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package panda.std.statistics;
+
+/**
+ * Mergeable histogram with a fixed number of equal-width buckets in range {@code [min, max)}.
+ * Values outside of the range are counted as underflow or overflow.
+ * The histogram is not thread-safe, use {@link #merge(LinearHistogram)} to combine histograms computed in parallel.
+ */
+public final class LinearHistogram {
+
+    private final double min;
+    private final double max;
+    private final double width;
+    private final long[] counts;
+    private long underflow;
+    private long overflow;
+
+    public LinearHistogram(double min, double max, int buckets) {
+        if (!(min < max)) {
+            throw new IllegalArgumentException("Histogram range is empty: [" + min + ", " + max + ")");
+        }
+
+        if (buckets < 1) {
+            throw new IllegalArgumentException("Histogram requires at least one bucket, got " + buckets);
+        }
+
+        this.min = min;
+        this.max = max;
+        this.width = (max - min) / buckets;
+        this.counts = new long[buckets];
+    }
+
+    public void record(double value) {
+        if (Double.isNaN(value)) {
+            throw new IllegalArgumentException("Histogram does not support NaN values");
+        }
+
+        if (value < min) {
+            underflow++;
+        }
+        else if (value >= max) {
+            overflow++;
+        }
+        else {
+            counts[Math.min(counts.length - 1, (int) ((value - min) / width))]++;
+        }
+    }
+
+    public LinearHistogram merge(LinearHistogram other) {
+        if (other.min != min || other.max != max || other.counts.length != counts.length) {
+            throw new IllegalArgumentException("Cannot merge histograms with different bucket layouts");
+        }
+
+        for (int index = 0; index < counts.length; index++) {
+            counts[index] += other.counts[index];
+        }
+
+        underflow += other.underflow;
+        overflow += other.overflow;
+        return this;
+    }
+
+    public long getCount(int bucket) {
+        return counts[bucket];
+    }
+
+    public double getLowerBound(int bucket) {
+        return min + bucket * width;
+    }
+
+    public double getUpperBound(int bucket) {
+        return bucket == counts.length - 1 ? max : min + (bucket + 1) * width;
+    }
+
+    public int getBuckets() {
+        return counts.length;
+    }
+
+    public long getUnderflow() {
+        return underflow;
+    }
+
+    public long getOverflow() {
+        return overflow;
+    }
+
+    public long getTotalCount() {
+        long total = underflow + overflow;
+
+        for (long bucketCount : counts) {
+            total += bucketCount;
+        }
+
+        return total;
+    }
+
+}
@@ -0,0 +1,171 @@
+/*
+ * Copyright (c) 2021 dzikoysk
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package panda.std.statistics;
+
+/**
+ * Mergeable histogram of non-negative {@code long} values with log-linear buckets (similar to HdrHistogram).
+ * Every power of two range is divided into {@code 2^precision} sub-buckets,
+ * so recorded values are kept with a relative error of at most {@code 2^-precision}, regardless of their magnitude.
+ * The memory footprint depends only on the precision, e.g. the default precision {@value #DEFAULT_PRECISION} (error below 1%) uses 7296 buckets.
+ * The histogram is not thread-safe, use {@link #merge(LogHistogram)} to combine histograms computed in parallel.
+ */
+public final class LogHistogram {
+
+    public static final int DEFAULT_PRECISION = 7;
+
+    private static final int MAX_PRECISION = 16;
+
+    private final int precision;
+    private final long[] counts;
+    private long count;
+    private double sum;
+    private long min = Long.MAX_VALUE;
+    private long max = Long.MIN_VALUE;
+
+    public LogHistogram() {
+        this(DEFAULT_PRECISION);
+    }
+
+    public LogHistogram(int precision) {
+        if (precision < 1 || precision > MAX_PRECISION) {
+            throw new IllegalArgumentException("Precision must be in range [1, " + MAX_PRECISION + "], got " + precision);
+        }
+
+        this.precision = precision;
+        this.counts = new long[(64 - precision) << precision];
+    }
+
+    public void record(long value) {
+        record(value, 1);
+    }
+
+    public void record(long value, long occurrences) {
+        if (value < 0) {
+            throw new IllegalArgumentException("Log histogram supports only non-negative values, got " + value);
+        }
+
+        counts[indexOf(value)] += occurrences;
+        count += occurrences;
+        sum += (double) value * occurrences;
+        min = Math.min(min, value);
+        max = Math.max(max, value);
+    }
+
+    public LogHistogram merge(LogHistogram other) {
+        if (other.precision != precision) {
+            throw new IllegalArgumentException("Cannot merge histograms with different precision (" + precision + " != " + other.precision + ")");
+        }
+
+        for (int index = 0; index < counts.length; index++) {
+            counts[index] += other.counts[index];
+        }
+
+        count += other.count;
+        sum += other.sum;
+        min = Math.min(min, other.min);
+        max = Math.max(max, other.max);
+        return this;
+    }
+
+    /**
+     * Get the highest value equivalent to the value at the given quantile.
+     *
+     * @param quantile the quantile in range {@code [0, 1]}, e.g. {@code 0.99} for p99
+     * @return the value at the given quantile, or 0 if the histogram is empty
+     */
+    public long valueAtQuantile(double quantile) {
+        if (quantile < 0 || quantile > 1) {
+            throw new IllegalArgumentException("Quantile must be in range [0, 1], got " + quantile);
+        }
+
+        if (count == 0) {
+            return 0;
+        }
+
+        long targetRank = Math.max(1, (long) Math.ceil(quantile * count));
+        long rank = 0;
+
+        for (int index = 0; index < counts.length; index++) {
+            rank += counts[index];
+
+            if (rank >= targetRank) {
+                return Math.max(min, Math.min(max, highestEquivalentValue(index)));
+            }
+        }
+
+        return max;
+    }
+
+    public long getCount() {
+        return count;
+    }
+
+    public long getCount(long value) {
+        if (value < 0) {
+            throw new IllegalArgumentException("Log histogram supports only non-negative values, got " + value);
+        }
+
+        return counts[indexOf(value)];
+    }
+
+    public boolean isEmpty() {
+        return count == 0;
+    }
+
+    public long getMin() {
+        return count == 0 ? 0 : min;
+    }
+
+    public long getMax() {
+        return count == 0 ? 0 : max;
+    }
+
+    public double getMean() {
+        return count == 0 ? Double.NaN : sum / count;
+    }
+
+    public int getPrecision() {
+        return precision;
+    }
+
+    private int indexOf(long value) {
+        if (value < (1L << precision)) {
+            return (int) value;
+        }
+
+        int shift = 63 - Long.numberOfLeadingZeros(value) - precision;
+        return ((shift + 1) << precision) + (int) ((value >>> shift) - (1L << precision));
+    }
+
+    private long highestEquivalentValue(int index) {
+        int bucket = index >>> precision;
+
+        if (bucket == 0) {
+            return index;
+        }
+
+        int shift = bucket - 1;
+        long lowest = ((1L << precision) + (index & ((1 << precision) - 1))) << shift;
+        return lowest + (1L << shift) - 1;
+    }
+
+    @Override
+    public String toString() {
+        return "LogHistogram{count=" + count + ", min=" + getMin() + ", max=" + getMax() + ", p50=" + valueAtQuantile(0.5) + ", p99=" + valueAtQuantile(0.99) + "}";
+    }
+
+}
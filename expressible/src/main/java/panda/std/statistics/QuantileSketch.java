@@ -0,0 +1,295 @@
+/*
+ * Copyright (c) 2021 dzikoysk
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package panda.std.statistics;
+
+import java.util.Arrays;
+
+/**
+ * Mergeable streaming quantile sketch based on KLL (Karnin, Lang, Liberty) compactors.
+ * The sketch retains {@code O(k log(n / k))} values, so it's cheap to compute quantiles of huge streams without sorting them.
+ * The rank error is roughly {@code 1.7 / k}, e.g. about 1% for the default {@value #DEFAULT_K}.
+ * Compaction uses a deterministic pseudo-random sequence, so the same input always produces the same sketch.
+ * The sketch is not thread-safe, use {@link #merge(QuantileSketch)} to combine sketches computed in parallel.
+ */
+public final class QuantileSketch {
+
+    public static final int DEFAULT_K = 200;
+
+    private static final int MIN_K = 8;
+    private static final double CAPACITY_DECAY = 2.0 / 3.0;
+
+    private final int k;
+    private double[][] levels = new double[4][];
+    private int[] sizes = new int[4];
+    private int height;
+    private int retained;
+    private int maxRetained;
+    private long count;
+    private double min = Double.POSITIVE_INFINITY;
+    private double max = Double.NEGATIVE_INFINITY;
+    private long randomState = 0x9E3779B97F4A7C15L;
+
+    private double[] sortedValues;
+    private long[] cumulativeWeights;
+
+    public QuantileSketch() {
+        this(DEFAULT_K);
+    }
+
+    public QuantileSketch(int k) {
+        if (k < MIN_K) {
+            throw new IllegalArgumentException("Sketch accuracy parameter k must be at least " + MIN_K + ", got " + k);
+        }
+
+        this.k = k;
+        grow();
+    }
+
+    public void update(double value) {
+        if (Double.isNaN(value)) {
+            throw new IllegalArgumentException("Quantile sketch does not support NaN values");
+        }
+
+        append(0, value);
+        retained++;
+        count++;
+        min = Math.min(min, value);
+        max = Math.max(max, value);
+        sortedValues = null;
+
+        if (retained >= maxRetained) {
+            compress();
+        }
+    }
+
+    public QuantileSketch merge(QuantileSketch other) {
+        if (other.count == 0) {
+            return this;
+        }
+
+        // snapshot sizes first, so merging the sketch with itself does not iterate over appended values
+        int otherHeight = other.height;
+        int[] otherSizes = Arrays.copyOf(other.sizes, otherHeight);
+        int otherRetained = other.retained;
+        long otherCount = other.count;
+
+        while (height < otherHeight) {
+            grow();
+        }
+
+        for (int level = 0; level < otherHeight; level++) {
+            for (int index = 0; index < otherSizes[level]; index++) {
+                append(level, other.levels[level][index]);
+            }
+        }
+
+        retained += otherRetained;
+        count += otherCount;
+        min = Math.min(min, other.min);
+        max = Math.max(max, other.max);
+        sortedValues = null;
+
+        while (retained >= maxRetained) {
+            compress();
+        }
+
+        return this;
+    }
+
+    /**
+     * Estimate the value at the given quantile.
+     *
+     * @param quantile the quantile in range {@code [0, 1]}, e.g. {@code 0.99} for p99
+     * @return the estimated value, or {@link Double#NaN} if the sketch is empty
+     */
+    public double quantile(double quantile) {
+        if (quantile < 0 || quantile > 1) {
+            throw new IllegalArgumentException("Quantile must be in range [0, 1], got " + quantile);
+        }
+
+        if (count == 0) {
+            return Double.NaN;
+        }
+
+        if (quantile == 0) {
+            return min;
+        }
+
+        if (quantile == 1) {
+            return max;
+        }
+
+        prepareSortedView();
+        long targetRank = (long) Math.ceil(quantile * count);
+        int index = Arrays.binarySearch(cumulativeWeights, targetRank);
+        return sortedValues[index >= 0 ? index : Math.min(-index - 1, sortedValues.length - 1)];
+    }
+
+    /**
+     * Estimate the fraction of values lower than or equal to the given value.
+     *
+     * @param value the value to rank
+     * @return normalized rank in range {@code [0, 1]}, or {@link Double#NaN} if the sketch is empty
+     */
+    public double rank(double value) {
+        if (count == 0) {
+            return Double.NaN;
+        }
+
+        long weight = 0;
+
+        for (int level = 0; level < height; level++) {
+            for (int index = 0; index < sizes[level]; index++) {
+                if (levels[level][index] <= value) {
+                    weight += 1L << level;
+                }
+            }
+        }
+
+        return (double) weight / count;
+    }
+
+    public long getCount() {
+        return count;
+    }
+
+    public boolean isEmpty() {
+        return count == 0;
+    }
+
+    public double getMin() {
+        return count == 0 ? Double.NaN : min;
+    }
+
+    public double getMax() {
+        return count == 0 ? Double.NaN : max;
+    }
+
+    public int getRetained() {
+        return retained;
+    }
+
+    private int capacity(int level) {
+        int depth = height - level - 1;
+        return (int) Math.ceil(Math.pow(CAPACITY_DECAY, depth) * k) + 1;
+    }
+
+    private void grow() {
+        if (height == levels.length) {
+            levels = Arrays.copyOf(levels, height * 2);
+            sizes = Arrays.copyOf(sizes, height * 2);
+        }
+
+        levels[height++] = new double[MIN_K];
+        maxRetained = 0;
+
+        for (int level = 0; level < height; level++) {
+            maxRetained += capacity(level);
+        }
+    }
+
+    private void append(int level, double value) {
+        double[] items = levels[level];
+
+        if (sizes[level] == items.length) {
+            items = levels[level] = Arrays.copyOf(items, items.length * 2);
+        }
+
+        items[sizes[level]++] = value;
+    }
+
+    private void compress() {
+        for (int level = 0; level < height; level++) {
+            if (sizes[level] < capacity(level)) {
+                continue;
+            }
+
+            if (level + 1 >= height) {
+                grow();
+            }
+
+            compact(level);
+
+            if (retained < maxRetained) {
+                return;
+            }
+        }
+    }
+
+    /**
+     * Sort the level and promote every second value to the next level, so the total weight is preserved.
+     * If the number of values is odd, the lowest one stays at the current level.
+     */
+    private void compact(int level) {
+        double[] items = levels[level];
+        int size = sizes[level];
+        int remaining = size & 1;
+        Arrays.sort(items, 0, size);
+
+        for (int index = remaining + (nextBoolean() ? 1 : 0); index < size; index += 2) {
+            append(level + 1, items[index]);
+        }
+
+        sizes[level] = remaining;
+        retained -= (size - remaining) / 2;
+    }
+
+    private boolean nextBoolean() {
+        randomState ^= randomState << 13;
+        randomState ^= randomState >>> 7;
+        randomState ^= randomState << 17;
+        return randomState < 0;
+    }
+
+    private void prepareSortedView() {
+        if (sortedValues != null) {
+            return;
+        }
+
+        int[] positions = new int[height];
+        double[] values = new double[retained];
+        long[] weights = new long[retained];
+        long weight = 0;
+
+        for (int level = 0; level < height; level++) {
+            Arrays.sort(levels[level], 0, sizes[level]);
+        }
+
+        for (int index = 0; index < retained; index++) {
+            int selected = -1;
+
+            for (int level = 0; level < height; level++) {
+                if (positions[level] < sizes[level] && (selected == -1 || levels[level][positions[level]] < levels[selected][positions[selected]])) {
+                    selected = level;
+                }
+            }
+
+            values[index] = levels[selected][positions[selected]++];
+            weight += 1L << selected;
+            weights[index] = weight;
+        }
+
+        this.sortedValues = values;
+        this.cumulativeWeights = weights;
+    }
+
+    @Override
+    public String toString() {
+        return "QuantileSketch{k=" + k + ", count=" + count + ", retained=" + retained + "}";
+    }
+
+}
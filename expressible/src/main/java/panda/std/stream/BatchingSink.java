@@ -0,0 +1,311 @@
+/*
+ * Copyright (c) 2021 dzikoysk
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package panda.std.stream;
+
+import org.jetbrains.annotations.Nullable;
+import panda.std.AttemptFailedException;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Consumer;
+
+/**
+ * Consumer that groups elements into batches and passes them to the batch consumer,
+ * when the batch reaches the maximum size or the oldest element in batch exceeds the maximum latency, whichever happens first.
+ * Batch lists are reused, so the batch consumer must not keep a reference to the received list after it returns.
+ * <p>
+ * Synchronous sink calls the batch consumer on the thread that accepts elements,
+ * so the latency is checked only when a new element arrives.
+ * Asynchronous sink hands batches over to a background task through a queue of bounded depth
+ * (producer blocks when the queue is full), and the background task also flushes batches that expired while waiting for new elements.
+ * The background task occupies one executor thread until the sink is closed,
+ * so asynchronous sink rejects executors that run tasks on the calling thread (e.g. {@code Runnable::run} or caller-runs policy).
+ * Sink has to be closed to flush the remaining elements.
+ *
+ * @param <T> type of elements
+ */
+public final class BatchingSink<T> implements Consumer<T>, AutoCloseable {
+
+    private static final long MIN_POLL_TIMEOUT = TimeUnit.MILLISECONDS.toNanos(1);
+    private static final long OFFER_TIMEOUT = TimeUnit.MILLISECONDS.toNanos(10);
+
+    private final int maxSize;
+    private final long maxLatency;
+    private final Consumer<List<T>> consumer;
+    private final ReentrantLock lock = new ReentrantLock();
+    private final List<T> endOfStream = new ArrayList<>(0);
+    private final @Nullable BlockingQueue<List<T>> pending;
+    private final @Nullable BlockingQueue<List<T>> buffers;
+    private final CountDownLatch finished = new CountDownLatch(1);
+    private volatile @Nullable Throwable failure;
+    private List<T> batch;
+    private long batchStartTime;
+    private boolean closed;
+
+    private BatchingSink(int maxSize, Duration maxLatency, int queueDepth, @Nullable Executor executor, Consumer<List<T>> consumer) {
+        if (maxSize < 1) {
+            throw new IllegalArgumentException("Batch size must be positive, got " + maxSize);
+        }
+
+        if (maxLatency.isNegative()) {
+            throw new IllegalArgumentException("Batch latency cannot be negative, got " + maxLatency);
+        }
+
+        this.maxSize = maxSize;
+        this.maxLatency = maxLatency.toNanos();
+        this.consumer = consumer;
+        this.batch = new ArrayList<>(maxSize);
+
+        if (executor == null) {
+            this.pending = null;
+            this.buffers = null;
+            return;
+        }
+
+        if (queueDepth < 1) {
+            throw new IllegalArgumentException("Queue depth must be positive, got " + queueDepth);
+        }
+
+        this.pending = new ArrayBlockingQueue<>(queueDepth + 1);
+        this.buffers = new ArrayBlockingQueue<>(queueDepth + 1);
+
+        Thread callerThread = Thread.currentThread();
+        AtomicBoolean runsOnCaller = new AtomicBoolean();
+
+        executor.execute(() -> {
+            if (Thread.currentThread() == callerThread) {
+                runsOnCaller.set(true);
+                return;
+            }
+
+            drain();
+        });
+
+        if (runsOnCaller.get()) {
+            throw new IllegalArgumentException("Asynchronous batching sink requires executor that runs tasks on another thread");
+        }
+    }
+
+    public static <T> BatchingSink<T> synchronous(int maxSize, Duration maxLatency, Consumer<List<T>> consumer) {
+        return new BatchingSink<>(maxSize, maxLatency, 0, null, consumer);
+    }
+
+    public static <T> BatchingSink<T> asynchronous(int maxSize, Duration maxLatency, int queueDepth, Executor executor, Consumer<List<T>> consumer) {
+        return new BatchingSink<>(maxSize, maxLatency, queueDepth, executor, consumer);
+    }
+
+    @Override
+    public void accept(T element) {
+        lock.lock();
+
+        try {
+            if (closed) {
+                throw new IllegalStateException("Batching sink has been already closed");
+            }
+
+            long now = System.nanoTime();
+
+            if (batch.isEmpty()) {
+                batchStartTime = now;
+            }
+
+            batch.add(element);
+
+            if (batch.size() >= maxSize || now - batchStartTime >= maxLatency) {
+                flush();
+            }
+        }
+        finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Flush remaining elements and wait until the background task consumes all batches.
+     *
+     * @throws panda.std.AttemptFailedException if asynchronous batch consumer has failed
+     */
+    @Override
+    public void close() {
+        lock.lock();
+
+        try {
+            if (closed) {
+                return;
+            }
+
+            closed = true;
+
+            try {
+                flush();
+            }
+            finally {
+                if (pending != null) {
+                    signalEndOfStream();
+                }
+            }
+        }
+        finally {
+            lock.unlock();
+        }
+
+        if (pending != null) {
+            awaitFinished();
+            throwIfFailed();
+        }
+    }
+
+    private void flush() {
+        if (batch.isEmpty()) {
+            return;
+        }
+
+        if (pending == null) {
+            try {
+                consumer.accept(batch);
+            }
+            finally {
+                batch.clear();
+            }
+            return;
+        }
+
+        List<T> fullBatch = batch;
+        this.batch = nextBuffer();
+        handOver(fullBatch);
+    }
+
+    private void handOver(List<T> fullBatch) {
+        try {
+            while (!pending.offer(fullBatch, OFFER_TIMEOUT, TimeUnit.NANOSECONDS)) {
+                throwIfFailed();
+            }
+        }
+        catch (InterruptedException interruptedException) {
+            Thread.currentThread().interrupt();
+            throw new AttemptFailedException("Interrupted while waiting for batch consumer", interruptedException);
+        }
+
+        throwIfFailed();
+    }
+
+    /**
+     * Background task keeps draining the queue even if the batch consumer has failed,
+     * so the end of stream marker is always delivered, unless the task itself has already finished.
+     */
+    private void signalEndOfStream() {
+        try {
+            while (!pending.offer(endOfStream, OFFER_TIMEOUT, TimeUnit.NANOSECONDS)) {
+                if (finished.getCount() == 0) {
+                    return;
+                }
+            }
+        }
+        catch (InterruptedException interruptedException) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private List<T> nextBuffer() {
+        List<T> buffer = buffers.poll();
+        return buffer != null ? buffer : new ArrayList<>(maxSize);
+    }
+
+    private void drain() {
+        long pollTimeout = Math.max(MIN_POLL_TIMEOUT, maxLatency / 2);
+
+        try {
+            while (true) {
+                List<T> nextBatch = pending.poll(pollTimeout, TimeUnit.NANOSECONDS);
+
+                if (nextBatch == endOfStream) {
+                    return;
+                }
+
+                if (nextBatch == null) {
+                    flushExpired();
+                    continue;
+                }
+
+                if (failure == null) {
+                    try {
+                        consumer.accept(nextBatch);
+                    }
+                    catch (Throwable throwable) {
+                        this.failure = throwable;
+                    }
+                }
+
+                nextBatch.clear();
+                buffers.offer(nextBatch);
+            }
+        }
+        catch (InterruptedException interruptedException) {
+            this.failure = interruptedException;
+            Thread.currentThread().interrupt();
+        }
+        finally {
+            finished.countDown();
+        }
+    }
+
+    /**
+     * Called by the background task when queue is empty.
+     * Lock is acquired optimistically, because producer may hold it while waiting for free space in the queue.
+     */
+    private void flushExpired() {
+        if (!lock.tryLock()) {
+            return;
+        }
+
+        try {
+            if (!closed && !batch.isEmpty() && System.nanoTime() - batchStartTime >= maxLatency && pending.offer(batch)) {
+                this.batch = nextBuffer();
+            }
+        }
+        finally {
+            lock.unlock();
+        }
+    }
+
+    private void awaitFinished() {
+        try {
+            finished.await();
+        }
+        catch (InterruptedException interruptedException) {
+            Thread.currentThread().interrupt();
+            throw new AttemptFailedException("Interrupted while waiting for batch consumer", interruptedException);
+        }
+    }
+
+    private void throwIfFailed() {
+        Throwable currentFailure = failure;
+
+        if (currentFailure != null) {
+            throw new AttemptFailedException("Batch consumer has failed", currentFailure);
+        }
+    }
+
+}
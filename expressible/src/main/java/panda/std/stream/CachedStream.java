@@ -0,0 +1,284 @@
+/*
+ * Copyright (c) 2021 dzikoysk
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package panda.std.stream;
+
+import org.jetbrains.annotations.Nullable;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.RandomAccessFile;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+/**
+ * Replayable view of a stream.
+ * The first traversal pulls elements from the upstream pipeline and stores them in chunks as they flow,
+ * so the consumer does not wait for the whole stream to be materialized.
+ * Every next traversal (including concurrent ones) replays stored elements and pulls from upstream only the missing ones,
+ * so upstream stages are evaluated at most once per element.
+ * <p>
+ * If the number of elements kept in memory exceeds the given limit,
+ * the oldest chunks are serialized to a temporary file and read back chunk by chunk during replay.
+ * The limit is applied in whole chunks of {@value #CHUNK_SIZE} elements: it is rounded down to a multiple of the chunk size,
+ * but at least one chunk is always kept in memory, so limits below the chunk size are rounded up to a single chunk.
+ * Spilling requires {@link java.io.Serializable} elements. Close the cache to release the temporary file.
+ *
+ * @param <T> type of elements
+ */
+public final class CachedStream<T> implements AutoCloseable {
+
+    static final int CHUNK_SIZE = 1024;
+
+    private final Stream<T> upstream;
+    private final Iterator<T> source;
+    private final int maxChunksInMemory;
+    private final List<Chunk> chunks = new ArrayList<>();
+    private int chunksInMemory;
+    private int firstChunkInMemory;
+    private long size;
+    private boolean complete;
+    private @Nullable File spillFile;
+    private @Nullable RandomAccessFile spillStorage;
+
+    CachedStream(Stream<T> upstream, long maxElementsInMemory) {
+        if (maxElementsInMemory < 1) {
+            throw new IllegalArgumentException("Cache has to keep at least one element in memory, got " + maxElementsInMemory);
+        }
+
+        this.upstream = upstream;
+        this.source = upstream.iterator();
+        this.maxChunksInMemory = (int) Math.max(1, Math.min(Integer.MAX_VALUE, maxElementsInMemory / CHUNK_SIZE));
+    }
+
+    /**
+     * Create a new traversal of cached elements.
+     *
+     * @return stream of all elements
+     */
+    public synchronized PandaStream<T> stream() {
+        Iterator<T> iterator = new CachedIterator();
+
+        Spliterator<T> spliterator = complete
+                ? Spliterators.spliterator(iterator, size, Spliterator.ORDERED)
+                : Spliterators.spliteratorUnknownSize(iterator, Spliterator.ORDERED);
+
+        return PandaStream.of(StreamSupport.stream(spliterator, false));
+    }
+
+    /**
+     * @return number of elements pulled from upstream so far
+     */
+    public synchronized long getCachedSize() {
+        return size;
+    }
+
+    /**
+     * @return true if upstream has been fully consumed
+     */
+    public synchronized boolean isComplete() {
+        return complete;
+    }
+
+    public synchronized boolean isSpilled() {
+        return spillFile != null;
+    }
+
+    @Override
+    public synchronized void close() {
+        upstream.close();
+        chunks.clear();
+
+        try {
+            if (spillStorage != null) {
+                spillStorage.close();
+            }
+        }
+        catch (IOException ioException) {
+            throw new UncheckedIOException(ioException);
+        }
+        finally {
+            if (spillFile != null && !spillFile.delete()) {
+                spillFile.deleteOnExit();
+            }
+        }
+    }
+
+    /**
+     * Make sure the chunk with the given index is available, pulling new elements from upstream if needed.
+     *
+     * @return the chunk, or null if upstream does not contain enough elements
+     */
+    private synchronized @Nullable Chunk chunk(int index, int minLength) {
+        while (!complete && (chunks.size() <= index || chunks.get(index).length < minLength)) {
+            if (!source.hasNext()) {
+                complete = true;
+                break;
+            }
+
+            append(source.next());
+        }
+
+        return chunks.size() > index ? chunks.get(index) : null;
+    }
+
+    private void append(T element) {
+        Chunk tail = chunks.isEmpty() ? null : chunks.get(chunks.size() - 1);
+
+        if (tail == null || tail.length == CHUNK_SIZE) {
+            tail = new Chunk(new Object[CHUNK_SIZE]);
+            chunks.add(tail);
+
+            if (++chunksInMemory > maxChunksInMemory) {
+                spill();
+            }
+        }
+
+        tail.elements[tail.length++] = element;
+        size++;
+    }
+
+    /**
+     * Chunks are spilled in order, so chunks kept in memory always form the tail of the list starting at {@link #firstChunkInMemory}.
+     */
+    private void spill() {
+        Chunk chunk = chunks.get(firstChunkInMemory);
+
+        if (chunk.length < CHUNK_SIZE) {
+            return;
+        }
+
+        chunk.offset = write(chunk.elements);
+        chunk.elements = null;
+        chunksInMemory--;
+        firstChunkInMemory++;
+    }
+
+    private long write(Object[] elements) {
+        try {
+            if (spillStorage == null) {
+                this.spillFile = File.createTempFile("panda-stream-cache", ".bin");
+                spillFile.deleteOnExit();
+                this.spillStorage = new RandomAccessFile(spillFile, "rw");
+            }
+
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+
+            try (ObjectOutputStream output = new ObjectOutputStream(bytes)) {
+                output.writeObject(elements);
+            }
+
+            long offset = spillStorage.length();
+            spillStorage.seek(offset);
+            spillStorage.writeInt(bytes.size());
+            spillStorage.write(bytes.toByteArray());
+            return offset;
+        }
+        catch (IOException ioException) {
+            throw new UncheckedIOException("Cannot spill cached elements to disk", ioException);
+        }
+    }
+
+    private synchronized Object[] read(Chunk chunk) {
+        if (chunk.elements != null) {
+            return chunk.elements;
+        }
+
+        try {
+            spillStorage.seek(chunk.offset);
+            byte[] bytes = new byte[spillStorage.readInt()];
+            spillStorage.readFully(bytes);
+
+            try (ObjectInputStream input = new ObjectInputStream(new ByteArrayInputStream(bytes))) {
+                return (Object[]) input.readObject();
+            }
+        }
+        catch (IOException ioException) {
+            throw new UncheckedIOException("Cannot read cached elements from disk", ioException);
+        }
+        catch (ClassNotFoundException classNotFoundException) {
+            throw new IllegalStateException("Cannot deserialize cached elements", classNotFoundException);
+        }
+    }
+
+    private static final class Chunk {
+
+        private @Nullable Object[] elements;
+        private int length;
+        private long offset;
+
+        private Chunk(Object[] elements) {
+            this.elements = elements;
+        }
+
+    }
+
+    private final class CachedIterator implements Iterator<T> {
+
+        private int chunkIndex;
+        private int position;
+        private Object[] elements = new Object[0];
+        private int available;
+
+        @Override
+        public boolean hasNext() {
+            if (position < available) {
+                return true;
+            }
+
+            if (position == CHUNK_SIZE) {
+                chunkIndex++;
+                position = 0;
+                available = 0;
+            }
+
+            Chunk chunk = chunk(chunkIndex, position + 1);
+
+            synchronized (CachedStream.this) {
+                if (chunk == null || chunk.length <= position) {
+                    return false;
+                }
+
+                this.elements = read(chunk);
+                this.available = chunk.length;
+                return true;
+            }
+        }
+
+        @Override
+        @SuppressWarnings("unchecked")
+        public T next() {
+            if (!hasNext()) {
+                throw new NoSuchElementException();
+            }
+
+            return (T) elements[position++];
+        }
+
+    }
+
+}
@@ -1,14 +1,40 @@
 package panda.std.stream;
 
+import panda.std.Pair;
+import panda.std.Result;
+import panda.std.collection.LongLongHashMap;
+import panda.std.collection.LongObjectHashMap;
+import panda.std.collection.PrimitiveMaps;
+import panda.std.statistics.LinearHistogram;
+import panda.std.statistics.LogHistogram;
+import panda.std.statistics.QuantileSketch;
+
+import java.util.ArrayList;
 import java.util.Collections;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Random;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.function.BiConsumer;
 import java.util.function.BinaryOperator;
+import java.util.function.Function;
+import java.util.function.LongBinaryOperator;
+import java.util.function.Supplier;
+import java.util.function.ToDoubleFunction;
+import java.util.function.ToIntFunction;
+import java.util.function.ToLongFunction;
 import java.util.stream.Collector;
+import java.util.stream.Collector.Characteristics;
 import java.util.stream.Collectors;
 
 public final class PandaCollectors {
 
+    private static final Characteristics[] IDENTITY_FINISH = { Characteristics.IDENTITY_FINISH };
+    private static final Characteristics[] NO_CHARACTERISTICS = { };
+    private static final int DEFAULT_EXPECTED_SIZE = 16;
+
     private PandaCollectors() {}
 
     public static <T> BinaryOperator<T> throwingMerger() {
@@ -22,4 +48,255 @@ public final class PandaCollectors {
         });
     }
 
+    /**
+     * Collect elements into a list shuffled in parallel, using random generator created from the given seed.
+     * For the same seed and the same elements, the result is always the same, regardless of the number of threads.
+     *
+     * @param seed the seed of random generator
+     * @param <T> type of elements
+     * @return the collector
+     */
+    public static <T> Collector<T, ?, List<T>> shufflingCollector(long seed) {
+        return Collectors.collectingAndThen(Collectors.toCollection(ArrayList::new), list -> ParallelShuffle.shuffle(list, seed));
+    }
+
+    public static <T, K> Collector<T, ?, Map<K, List<T>>> groupingBy(Function<? super T, ? extends K> classifier, int expectedSize) {
+        return groupingBy(classifier, expectedSize, Collectors.toList());
+    }
+
+    /**
+     * Group elements into a {@link java.util.HashMap} allocated upfront for the expected number of groups,
+     * so the map does not rehash while it grows.
+     */
+    public static <T, K, A, D> Collector<T, ?, Map<K, D>> groupingBy(Function<? super T, ? extends K> classifier, int expectedSize, Collector<? super T, A, D> downstream) {
+        return Collectors.groupingBy(classifier, () -> new HashMap<>(PrimitiveMaps.hashMapCapacity(expectedSize)), downstream);
+    }
+
+    public static <T, K> Collector<T, ?, ConcurrentMap<K, List<T>>> groupingByConcurrent(Function<? super T, ? extends K> classifier, int expectedSize) {
+        return groupingByConcurrent(classifier, expectedSize, Collectors.toList());
+    }
+
+    /**
+     * Group elements into a single {@link java.util.concurrent.ConcurrentHashMap} pre-sized for the expected number of groups.
+     * The collector is {@link Characteristics#CONCURRENT} and {@link Characteristics#UNORDERED},
+     * so parallel streams accumulate into one shared map instead of merging per-thread maps.
+     */
+    public static <T, K, A, D> Collector<T, ?, ConcurrentMap<K, D>> groupingByConcurrent(Function<? super T, ? extends K> classifier, int expectedSize, Collector<? super T, A, D> downstream) {
+        return Collectors.groupingByConcurrent(classifier, () -> new ConcurrentHashMap<>(expectedSize), downstream);
+    }
+
+    public static <T, A, D> Collector<T, ?, LongObjectHashMap<D>> groupingByInt(ToIntFunction<? super T> classifier, Collector<? super T, A, D> downstream) {
+        return groupingByInt(classifier, DEFAULT_EXPECTED_SIZE, downstream);
+    }
+
+    public static <T, A, D> Collector<T, ?, LongObjectHashMap<D>> groupingByInt(ToIntFunction<? super T> classifier, int expectedSize, Collector<? super T, A, D> downstream) {
+        return groupingByLong(classifier::applyAsInt, expectedSize, downstream);
+    }
+
+    public static <T, A, D> Collector<T, ?, LongObjectHashMap<D>> groupingByLong(ToLongFunction<? super T> classifier, Collector<? super T, A, D> downstream) {
+        return groupingByLong(classifier, DEFAULT_EXPECTED_SIZE, downstream);
+    }
+
+    /**
+     * Group elements by primitive key into an open-addressing {@link panda.std.collection.LongObjectHashMap},
+     * so keys are never boxed.
+     */
+    @SuppressWarnings("unchecked")
+    public static <T, A, D> Collector<T, ?, LongObjectHashMap<D>> groupingByLong(ToLongFunction<? super T> classifier, int expectedSize, Collector<? super T, A, D> downstream) {
+        Supplier<A> downstreamSupplier = downstream.supplier();
+        BiConsumer<A, ? super T> downstreamAccumulator = downstream.accumulator();
+        BinaryOperator<A> downstreamCombiner = downstream.combiner();
+        boolean identityFinish = downstream.characteristics().contains(Characteristics.IDENTITY_FINISH);
+
+        return Collector.of(
+                () -> new LongObjectHashMap<A>(expectedSize),
+                (map, element) -> downstreamAccumulator.accept(map.computeIfAbsent(classifier.applyAsLong(element), key -> downstreamSupplier.get()), element),
+                (left, right) -> left.mergeAll(right, downstreamCombiner),
+                map -> identityFinish ? (LongObjectHashMap<D>) map : map.replaceAll(downstream.finisher()),
+                identityFinish ? IDENTITY_FINISH : NO_CHARACTERISTICS
+        );
+    }
+
+    public static <T> Collector<T, ?, LongLongHashMap> countingByInt(ToIntFunction<? super T> classifier) {
+        return countingByInt(classifier, DEFAULT_EXPECTED_SIZE);
+    }
+
+    public static <T> Collector<T, ?, LongLongHashMap> countingByInt(ToIntFunction<? super T> classifier, int expectedSize) {
+        return countingByLong(classifier::applyAsInt, expectedSize);
+    }
+
+    public static <T> Collector<T, ?, LongLongHashMap> countingByLong(ToLongFunction<? super T> classifier) {
+        return countingByLong(classifier, DEFAULT_EXPECTED_SIZE);
+    }
+
+    public static <T> Collector<T, ?, LongLongHashMap> countingByLong(ToLongFunction<? super T> classifier, int expectedSize) {
+        return Collector.of(
+                () -> new LongLongHashMap(expectedSize),
+                (map, element) -> map.add(classifier.applyAsLong(element), 1),
+                (left, right) -> left.mergeAll(right, Long::sum),
+                IDENTITY_FINISH
+        );
+    }
+
+    public static <T> Collector<T, ?, LongLongHashMap> aggregatingByInt(ToIntFunction<? super T> classifier, ToLongFunction<? super T> mapper, LongBinaryOperator aggregator) {
+        return aggregatingByInt(classifier, DEFAULT_EXPECTED_SIZE, mapper, aggregator);
+    }
+
+    public static <T> Collector<T, ?, LongLongHashMap> aggregatingByInt(ToIntFunction<? super T> classifier, int expectedSize, ToLongFunction<? super T> mapper, LongBinaryOperator aggregator) {
+        return aggregatingByLong(classifier::applyAsInt, expectedSize, mapper, aggregator);
+    }
+
+    public static <T> Collector<T, ?, LongLongHashMap> aggregatingByLong(ToLongFunction<? super T> classifier, ToLongFunction<? super T> mapper, LongBinaryOperator aggregator) {
+        return aggregatingByLong(classifier, DEFAULT_EXPECTED_SIZE, mapper, aggregator);
+    }
+
+    /**
+     * Aggregate values of each group in place, without boxed per-group accumulators.
+     * Use {@code Long::sum}, {@code Math::min} or {@code Math::max} as an aggregator to compute sum, min or max of each group.
+     *
+     * @param classifier the key of group
+     * @param expectedSize the expected number of groups
+     * @param mapper the value to aggregate
+     * @param aggregator the associative function used to combine values of the same group
+     * @param <T> type of elements
+     * @return aggregating collector
+     */
+    public static <T> Collector<T, ?, LongLongHashMap> aggregatingByLong(ToLongFunction<? super T> classifier, int expectedSize, ToLongFunction<? super T> mapper, LongBinaryOperator aggregator) {
+        return Collector.of(
+                () -> new LongLongHashMap(expectedSize),
+                (map, element) -> map.merge(classifier.applyAsLong(element), mapper.applyAsLong(element), aggregator),
+                (left, right) -> left.mergeAll(right, aggregator),
+                IDENTITY_FINISH
+        );
+    }
+
+    public static <T, K> Collector<T, ?, Map<K, Long>> countingBy(Function<? super T, ? extends K> classifier) {
+        return countingBy(classifier, DEFAULT_EXPECTED_SIZE);
+    }
+
+    public static <T, K> Collector<T, ?, Map<K, Long>> countingBy(Function<? super T, ? extends K> classifier, int expectedSize) {
+        return aggregatingBy(classifier, expectedSize, element -> 1L, Long::sum);
+    }
+
+    public static <T, K> Collector<T, ?, Map<K, Long>> aggregatingBy(Function<? super T, ? extends K> classifier, ToLongFunction<? super T> mapper, LongBinaryOperator aggregator) {
+        return aggregatingBy(classifier, DEFAULT_EXPECTED_SIZE, mapper, aggregator);
+    }
+
+    /**
+     * Aggregate values of each group in place using a mutable primitive cell per group.
+     * Results are boxed only once per group, when the collector finishes.
+     * Map of groups is allocated upfront for the expected number of groups.
+     */
+    public static <T, K> Collector<T, ?, Map<K, Long>> aggregatingBy(Function<? super T, ? extends K> classifier, int expectedSize, ToLongFunction<? super T> mapper, LongBinaryOperator aggregator) {
+        return Collector.<T, Map<K, LongCell>, Map<K, Long>> of(
+                () -> new HashMap<>(PrimitiveMaps.hashMapCapacity(expectedSize)),
+                (map, element) -> {
+                    K key = classifier.apply(element);
+                    long value = mapper.applyAsLong(element);
+                    LongCell cell = map.get(key);
+
+                    if (cell == null) {
+                        map.put(key, new LongCell(value));
+                    }
+                    else {
+                        cell.value = aggregator.applyAsLong(cell.value, value);
+                    }
+                },
+                (left, right) -> {
+                    right.forEach((key, cell) -> left.merge(key, cell, (current, next) -> {
+                        current.value = aggregator.applyAsLong(current.value, next.value);
+                        return current;
+                    }));
+                    return left;
+                },
+                map -> {
+                    Map<K, Long> result = new HashMap<>(PrimitiveMaps.hashMapCapacity(map.size()));
+                    map.forEach((key, cell) -> result.put(key, cell.value));
+                    return result;
+                }
+        );
+    }
+
+    public static <T, V, E> Collector<T, ?, Pair<List<V>, List<E>>> partitioningResults(Function<? super T, Result<V, E>> mapper) {
+        return partitioningResults(mapper, 0);
+    }
+
+    /**
+     * Map elements to results and split them into values and errors in a single pass.
+     * The list of values is allocated upfront for the expected number of elements in every container,
+     * so the hint should be passed only for sequential streams, parallel streams should use {@code 0}.
+     * Errors are expected to be rare and start with the default capacity.
+     * Parallel streams collect chunk-local lists that are concatenated in encounter order.
+     *
+     * @param mapper the function that maps element to result
+     * @param expectedSize the expected number of successful elements, {@code 0} if unknown
+     * @return pair of values (first) and errors (second)
+     */
+    public static <T, V, E> Collector<T, ?, Pair<List<V>, List<E>>> partitioningResults(Function<? super T, Result<V, E>> mapper, int expectedSize) {
+        return Collector.<T, Pair<List<V>, List<E>>> of(
+                () -> Pair.of(expectedSize > 0 ? new ArrayList<>(expectedSize) : new ArrayList<>(), new ArrayList<>()),
+                (partition, element) -> {
+                    Result<V, E> result = mapper.apply(element);
+
+                    if (result.isOk()) {
+                        partition.getFirst().add(result.get());
+                    }
+                    else {
+                        partition.getSecond().add(result.getError());
+                    }
+                },
+                (left, right) -> {
+                    left.getFirst().addAll(right.getFirst());
+                    left.getSecond().addAll(right.getSecond());
+                    return left;
+                },
+                IDENTITY_FINISH
+        );
+    }
+
+    public static <T> Collector<T, ?, QuantileSketch> quantiles(ToDoubleFunction<? super T> mapper) {
+        return quantiles(mapper, QuantileSketch.DEFAULT_K);
+    }
+
+    public static <T> Collector<T, ?, QuantileSketch> quantiles(ToDoubleFunction<? super T> mapper, int k) {
+        return Collector.of(
+                () -> new QuantileSketch(k),
+                (sketch, element) -> sketch.update(mapper.applyAsDouble(element)),
+                QuantileSketch::merge,
+                IDENTITY_FINISH
+        );
+    }
+
+    public static <T> Collector<T, ?, LogHistogram> logHistogram(ToLongFunction<? super T> mapper) {
+        return logHistogram(mapper, LogHistogram.DEFAULT_PRECISION);
+    }
+
+    public static <T> Collector<T, ?, LogHistogram> logHistogram(ToLongFunction<? super T> mapper, int precision) {
+        return Collector.of(
+                () -> new LogHistogram(precision),
+                (histogram, element) -> histogram.record(mapper.applyAsLong(element)),
+                LogHistogram::merge,
+                IDENTITY_FINISH
+        );
+    }
+
+    public static <T> Collector<T, ?, LinearHistogram> linearHistogram(ToDoubleFunction<? super T> mapper, double min, double max, int buckets) {
+        return Collector.of(
+                () -> new LinearHistogram(min, max, buckets),
+                (histogram, element) -> histogram.record(mapper.applyAsDouble(element)),
+                LinearHistogram::merge,
+                IDENTITY_FINISH
+        );
+    }
+
+    private static final class LongCell {
+
+        private long value;
+
+        private LongCell(long value) {
+            this.value = value;
+        }
+
+    }
+
 }
@@ -16,30 +16,48 @@
 
 package panda.std.stream;
 
+import java.nio.ByteBuffer;
+import java.time.Duration;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collection;
+import java.util.Collections;
 import java.util.Comparator;
+import java.util.DoubleSummaryStatistics;
 import java.util.HashMap;
 import java.util.Iterator;
 import java.util.List;
+import java.util.LongSummaryStatistics;
 import java.util.Map;
+import java.util.Objects;
 import java.util.Random;
 import java.util.Set;
+import java.util.Spliterator;
+import java.util.concurrent.Executor;
 import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.BiConsumer;
 import java.util.function.BiFunction;
 import java.util.function.Consumer;
 import java.util.function.Function;
 import java.util.function.IntFunction;
 import java.util.function.Predicate;
 import java.util.function.Supplier;
+import java.util.function.ToDoubleFunction;
+import java.util.function.ToLongFunction;
 import java.util.stream.Collector;
 import java.util.stream.Collectors;
 import java.util.stream.Stream;
 import java.util.stream.StreamSupport;
+import org.jetbrains.annotations.Nullable;
 import panda.std.Option;
 import panda.std.Pair;
 import panda.std.Result;
+import panda.std.collection.ImmutableArrayMap;
+import panda.std.collection.PrimitiveMaps;
+import panda.std.statistics.LinearHistogram;
+import panda.std.statistics.LogHistogram;
+import panda.std.statistics.QuantileSketch;
 
 /**
  * Simple wrapper to combine standard {@link java.util.stream.Stream} API with wrappers like
@@ -52,10 +70,26 @@ import panda.std.Result;
  */
 public class PandaStream<T> implements AutoCloseable {
 
+    private static final int COMPACT_MAP_THRESHOLD = 8;
+    private static final int DEFAULT_PROFILER_SAMPLE_RATE = 16;
+
     private Stream<T> stream;
+    private @Nullable StreamSource<T> source;
+    private @Nullable StreamProfiler profiler;
+    private @Nullable StreamConcatenation<T> concatenation;
 
     private PandaStream(Stream<T> stream) {
+        this(stream, null, null);
+    }
+
+    private PandaStream(Stream<T> stream, @Nullable StreamSource<T> source, @Nullable StreamProfiler profiler) {
         this.stream = stream;
+        this.source = source;
+        this.profiler = profiler;
+    }
+
+    private <R> PandaStream<R> derive(Stream<R> stream, @Nullable StreamSource<R> source) {
+        return new PandaStream<>(stream, source, profiler);
     }
 
     @Override
@@ -63,18 +97,63 @@ public class PandaStream<T> implements AutoCloseable {
         stream.close();
     }
 
+    public PandaStream<T> profiled(String name, Consumer<StreamProfile> listener) {
+        return profiled(name, DEFAULT_PROFILER_SAMPLE_RATE, listener);
+    }
+
+    /**
+     * Enable profiling of the next stages of this stream.
+     * Stages created with {@link #map(Function)}, {@link #mapOpt(Function)}, {@link #filter(Predicate)} and other methods that accept a function
+     * record number of received and passed elements, and time and memory allocated by every n-th (sampled) element.
+     * The report is passed to the listener at the terminal operation or when stream is closed, whichever happens first.
+     * Streams that have not been profiled are not affected in any way.
+     *
+     * @param name the name of stream used in report
+     * @param sampleRate measure time and allocations of 1 per sampleRate elements
+     * @param listener the profile consumer
+     * @return this stream
+     */
+    public PandaStream<T> profiled(String name, int sampleRate, Consumer<StreamProfile> listener) {
+        StreamProfiler streamProfiler = new StreamProfiler(name, sampleRate, listener);
+        this.stream = stream.onClose(streamProfiler::report);
+        this.source = null;
+        this.profiler = streamProfiler;
+        return this;
+    }
+
+    private <R> R terminal(R result) {
+        if (profiler != null) {
+            profiler.report();
+        }
+
+        return result;
+    }
+
     public <R> PandaStream<R> stream(Function<Stream<T>, Stream<R>> function) {
-        return new PandaStream<>(function.apply(stream));
+        return derive(function.apply(stream), null);
     }
 
     public PandaStream<T> concat(Stream<T> stream) {
-        this.stream = Stream.concat(this.stream, stream);
-        return this;
+        return with(concatenation().append(stream));
     }
 
     public PandaStream<T> concat(PandaStream<T> pandaStream) {
-        this.stream = Stream.concat(this.stream, pandaStream.stream);
-        return this;
+        if (pandaStream.concatenation != null && pandaStream.concatenation.isProducedBy(pandaStream.stream)) {
+            return with(concatenation().appendAll(pandaStream.concatenation));
+        }
+
+        return concat(pandaStream.stream);
+    }
+
+    /**
+     * Get concatenation that produced the current stream, so appended segments are flattened instead of nested.
+     */
+    private StreamConcatenation<T> concatenation() {
+        if (concatenation == null || !concatenation.isProducedBy(stream)) {
+            this.concatenation = new StreamConcatenation<>(stream);
+        }
+
+        return concatenation;
     }
 
     public PandaStream<T> concat(Iterable<T> iterable) {
@@ -95,7 +174,11 @@ public class PandaStream<T> implements AutoCloseable {
     }
 
     public <R> PandaStream<R> map(Function<T, R> function) {
-        return new PandaStream<>(stream.map(function));
+        if (profiler != null) {
+            return derive(stream.map(profiler.stage("map").function(function)), null);
+        }
+
+        return derive(stream.map(function), source == null ? null : source.map(function));
     }
 
     public <A, R> PandaStream<R> mapWith(A with, BiFunction<A, T, R> function) {
@@ -103,13 +186,50 @@ public class PandaStream<T> implements AutoCloseable {
     }
 
     public <R> PandaStream<R> mapOpt(Function<T, Option<R>> function) {
-        return map(function)
+        Function<T, Option<R>> mapper = profiler == null ? function : profiler.stage("mapOpt").optionFunction(function);
+
+        return derive(stream
+                .map(mapper)
                 .filter(Option::isDefined)
-                .map(Option::get);
+                .map(Option::get), null);
     }
 
+    /**
+     * Replace every element with elements of the returned iterable.
+     * Unlike {@link java.util.stream.Stream#flatMap(java.util.function.Function)}, results are iterated directly
+     * (random access lists by index) instead of wrapping every result in a new stream.
+     */
     public <R> PandaStream<R> flatMap(Function<T, Iterable<R>> function) {
-        return new PandaStream<>(stream.flatMap(value -> StreamSupport.stream(function.apply(value).spliterator(), false)));
+        if (profiler != null) {
+            StageProfile stage = profiler.stage("flatMap");
+            return derive(StreamExpansions.flatMap(stream, stage.inputFunction(function)).peek(stage::countOut), null);
+        }
+
+        return derive(StreamExpansions.flatMap(stream, function), null);
+    }
+
+    /**
+     * Replace every element with zero or more elements pushed to the given consumer (similar to {@code Stream#mapMulti} from Java 16).
+     * The consumer is valid only during the call of expander.
+     *
+     * @param expander the function that passes results of the given element to the consumer
+     * @param <R> type of results
+     * @return stream of results
+     */
+    public <R> PandaStream<R> expand(BiConsumer<T, Consumer<R>> expander) {
+        if (profiler != null) {
+            StageProfile stage = profiler.stage("expand");
+
+            Function<T, Iterable<R>> function = stage.inputFunction(element -> {
+                List<R> results = new ArrayList<>();
+                expander.accept(element, results::add);
+                return results;
+            });
+
+            return derive(StreamExpansions.flatMap(stream, function).peek(stage::countOut), null);
+        }
+
+        return derive(StreamExpansions.expand(stream, expander), null);
     }
 
     public <A, R> PandaStream<R> flatMapWith(A with, BiFunction<A, T, Iterable<R>> function) {
@@ -117,7 +237,76 @@ public class PandaStream<T> implements AutoCloseable {
     }
 
     public <R> PandaStream<R> flatMapStream(Function<T, Stream<R>> function) {
-        return new PandaStream<>(stream.flatMap(function));
+        if (profiler != null) {
+            StageProfile stage = profiler.stage("flatMapStream");
+            return derive(stream.flatMap(stage.inputFunction(function)).peek(stage::countOut), null);
+        }
+
+        return derive(stream.flatMap(function), null);
+    }
+
+    /**
+     * Join elements of both streams with equal keys.
+     * Hash table is built from the smaller side if sizes of both streams are known, otherwise from the other stream.
+     * Building the table consumes the build side immediately, the other side is probed lazily.
+     * Results follow the order of the probe side, so the order of results depends on sizes of both streams:
+     * use {@link #leftHashJoin(PandaStream, java.util.function.Function, java.util.function.Function, java.util.function.BiFunction)}
+     * or {@link #mergeJoin(PandaStream, java.util.function.Function, java.util.function.Function, java.util.function.BiFunction)}
+     * if results have to follow the order of this stream.
+     *
+     * @param other the right side of join
+     * @param leftKey the key of elements in this stream
+     * @param rightKey the key of elements in the other stream
+     * @param combiner the function that creates result of matched elements
+     * @return stream of combined matches
+     */
+    public <U, K, R> PandaStream<R> hashJoin(PandaStream<U> other, Function<T, K> leftKey, Function<U, K> rightKey, BiFunction<T, U, R> combiner) {
+        long leftSize = knownSize();
+        long rightSize = other.knownSize();
+
+        if (leftSize != -1 && rightSize != -1 && leftSize < rightSize) {
+            return derive(StreamJoins.hashJoin(other.stream, rightKey, stream, leftKey, leftSize, false, (right, left) -> combiner.apply(left, right)), null);
+        }
+
+        return derive(StreamJoins.hashJoin(stream, leftKey, other.stream, rightKey, rightSize, false, combiner), null);
+    }
+
+    public <U, K> PandaStream<Pair<T, U>> hashJoin(PandaStream<U> other, Function<T, K> leftKey, Function<U, K> rightKey) {
+        return hashJoin(other, leftKey, rightKey, Pair::of);
+    }
+
+    /**
+     * Join elements of both streams with equal keys, keeping elements of this stream without any match (combined with null).
+     * Hash table is always built from the other stream, results follow the order of this stream.
+     *
+     * @see #hashJoin(PandaStream, java.util.function.Function, java.util.function.Function, java.util.function.BiFunction)
+     */
+    public <U, K, R> PandaStream<R> leftHashJoin(PandaStream<U> other, Function<T, K> leftKey, Function<U, K> rightKey, BiFunction<T, @Nullable U, R> combiner) {
+        return derive(StreamJoins.hashJoin(stream, leftKey, other.stream, rightKey, other.knownSize(), true, combiner), null);
+    }
+
+    /**
+     * Join elements of streams already sorted by their keys (in ascending order).
+     * Both streams are traversed once and only right elements sharing the current key are buffered.
+     *
+     * @throws java.lang.IllegalStateException during traversal, if any stream turns out to be unsorted
+     * @see #mergeJoin(PandaStream, java.util.function.Function, java.util.function.Function, java.util.Comparator, java.util.function.BiFunction)
+     */
+    public <U, K extends Comparable<? super K>, R> PandaStream<R> mergeJoin(PandaStream<U> other, Function<T, K> leftKey, Function<U, K> rightKey, BiFunction<T, U, R> combiner) {
+        return mergeJoin(other, leftKey, rightKey, Comparator.naturalOrder(), combiner);
+    }
+
+    public <U, K, R> PandaStream<R> mergeJoin(PandaStream<U> other, Function<T, K> leftKey, Function<U, K> rightKey, Comparator<? super K> comparator, BiFunction<T, U, R> combiner) {
+        return derive(StreamJoins.mergeJoin(stream, leftKey, other.stream, rightKey, comparator, false, combiner), null);
+    }
+
+    /**
+     * Merge join that keeps elements of this stream without any match (combined with null).
+     *
+     * @see #mergeJoin(PandaStream, java.util.function.Function, java.util.function.Function, java.util.Comparator, java.util.function.BiFunction)
+     */
+    public <U, K, R> PandaStream<R> leftMergeJoin(PandaStream<U> other, Function<T, K> leftKey, Function<U, K> rightKey, Comparator<? super K> comparator, BiFunction<T, @Nullable U, R> combiner) {
+        return derive(StreamJoins.mergeJoin(stream, leftKey, other.stream, rightKey, comparator, true, combiner), null);
     }
 
     public <S> PandaStream<S> is(Class<S> type) {
@@ -139,11 +328,12 @@ public class PandaStream<T> implements AutoCloseable {
     }
 
     public PandaStream<T> filter(Predicate<T> predicate) {
-        return with(stream.filter(predicate));
+        return with(stream.filter(profiler == null ? predicate : profiler.stage("filter").predicate(predicate)));
     }
 
     public PandaStream<T> filterNot(Predicate<T> predicate) {
-        return with(stream.filter(obj -> !predicate.test(obj)));
+        Predicate<T> negated = obj -> !predicate.test(obj);
+        return with(stream.filter(profiler == null ? negated : profiler.stage("filterNot").predicate(negated)));
     }
 
     public <E> Result<PandaStream<T>, E> filterToResult(Function<? super T, Option<E>> predicate) {
@@ -173,6 +363,49 @@ public class PandaStream<T> implements AutoCloseable {
                 .orElseGet(() -> Result.error(errors));
     }
 
+    /**
+     * Map elements to results and keep only successful values.
+     * Values are passed to the next stage directly, without intermediate filter and map stages.
+     *
+     * @param function the function that maps element to result
+     * @return stream of successful values
+     */
+    public <V, E> PandaStream<V> collectOk(Function<T, Result<V, E>> function) {
+        return mapResult(function, error -> {});
+    }
+
+    /**
+     * Map elements to results, pass errors to the given consumer and keep only successful values.
+     *
+     * @param function the function that maps element to result
+     * @param errorConsumer the consumer of errors, called during traversal
+     * @return stream of successful values
+     */
+    public <V, E> PandaStream<V> mapResult(Function<T, Result<V, E>> function, Consumer<E> errorConsumer) {
+        return expand((element, sink) -> {
+            Result<V, E> result = function.apply(element);
+
+            if (result.isOk()) {
+                sink.accept(result.get());
+            }
+            else {
+                errorConsumer.accept(result.getError());
+            }
+        });
+    }
+
+    /**
+     * Map elements to results and split them into values and errors in a single pass.
+     *
+     * @param function the function that maps element to result
+     * @return pair of values (first) and errors (second), both in encounter order
+     * @see panda.std.stream.PandaCollectors#partitioningResults(java.util.function.Function, int)
+     */
+    public <V, E> Pair<List<V>, List<E>> partitionResults(Function<T, Result<V, E>> function) {
+        long size = stream.isParallel() ? -1 : knownSize();
+        return collect(PandaCollectors.partitioningResults(function, (int) Math.max(0, Math.min(Integer.MAX_VALUE - 8, size))));
+    }
+
     public PandaStream<T> distinct() {
         return with(stream.distinct());
     }
@@ -189,8 +422,24 @@ public class PandaStream<T> implements AutoCloseable {
         return PandaStream.of(this.toShuffledList());
     }
 
+    /**
+     * Shuffle elements in parallel, reproducibly for the given seed.
+     *
+     * @see #toShuffledList(long)
+     */
+    public PandaStream<T> shuffle(long seed) {
+        return PandaStream.of(this.toShuffledList(seed));
+    }
+
     public PandaStream<T> skip(long n) {
-        return with(stream.skip(n));
+        if (n < 0) {
+            throw new IllegalArgumentException(Long.toString(n));
+        }
+
+        StreamSource<T> skippedSource = source == null ? null : source.skip(n);
+        with(stream.skip(n));
+        this.source = skippedSource;
+        return this;
     }
 
     public Option<T> find(Predicate<T> predicate) {
@@ -198,15 +447,105 @@ public class PandaStream<T> implements AutoCloseable {
     }
 
     public Option<T> head() {
-        return Option.ofOptional(stream.findFirst());
+        if (source != null) {
+            return source.isEmpty() ? Option.none() : Option.of(Objects.requireNonNull(source.first()));
+        }
+
+        return terminal(Option.ofOptional(stream.findFirst()));
     }
 
+    /**
+     * Get the last element of stream.
+     * If stream wraps a known source (random access list, array or deque) and applied only map stages,
+     * the last element is accessed directly, otherwise the whole stream is traversed.
+     * Like {@link #head()}, it throws {@link java.lang.NullPointerException} if the selected element is null.
+     *
+     * @return the last element of stream
+     */
     public Option<T> last() {
-        return Option.ofOptional(stream.reduce((first, second) -> second));
+        if (source != null) {
+            return source.isEmpty() ? Option.none() : Option.of(Objects.requireNonNull(source.last()));
+        }
+
+        return terminal(Option.ofOptional(stream.reduce((first, second) -> second)));
     }
 
     public Option<T> any() {
-        return Option.ofOptional(stream.findAny());
+        if (source != null) {
+            return head();
+        }
+
+        return terminal(Option.ofOptional(stream.findAny()));
+    }
+
+    /**
+     * Find the first element (in encounter order) matching the given predicate, evaluating the predicate in parallel.
+     * Once a match is found, splits located after it in encounter order are cancelled.
+     *
+     * @param predicate the predicate to test elements
+     * @return the first matching element
+     */
+    public Option<T> findFirstParallel(Predicate<T> predicate) {
+        return terminal(Option.ofOptional(stream.parallel().filter(predicate).findFirst()));
+    }
+
+    /**
+     * Check if any element matches the given predicate.
+     * Traversal stops (and outstanding splits of parallel stream are cancelled) at the first matching element.
+     *
+     * @param predicate the predicate to test elements
+     * @return true if any element matches the predicate
+     */
+    public boolean anyMatch(Predicate<T> predicate) {
+        return terminal(stream.anyMatch(predicate));
+    }
+
+    /**
+     * @param predicate the predicate to test elements
+     * @return true if all elements match the predicate (or stream is empty)
+     * @see #anyMatch(java.util.function.Predicate)
+     */
+    public boolean allMatch(Predicate<T> predicate) {
+        return terminal(stream.allMatch(predicate));
+    }
+
+    /**
+     * @param predicate the predicate to test elements
+     * @return true if no element matches the predicate (or stream is empty)
+     * @see #anyMatch(java.util.function.Predicate)
+     */
+    public boolean noneMatch(Predicate<T> predicate) {
+        return terminal(stream.noneMatch(predicate));
+    }
+
+    /**
+     * Check if stream contains at least the given number of elements.
+     * Unlike {@link #count()}, traversal stops as soon as the n-th element is reached.
+     *
+     * @param n the required number of elements
+     * @return true if stream contains at least n elements
+     */
+    public boolean countAtLeast(long n) {
+        if (source != null) {
+            return source.size() >= n;
+        }
+
+        if (n <= 0) {
+            return terminal(true);
+        }
+
+        AtomicLong counter = new AtomicLong();
+        return anyMatch(element -> counter.incrementAndGet() >= n);
+    }
+
+    /**
+     * @param n the required number of matching elements
+     * @param predicate the predicate to test elements
+     * @return true if stream contains at least n elements matching the given predicate
+     * @see #countAtLeast(long)
+     */
+    public boolean countAtLeast(long n, Predicate<T> predicate) {
+        return filter(predicate).countAtLeast(n);
     }
 
     public long count(Predicate<T> predicate) {
@@ -214,16 +553,48 @@ public class PandaStream<T> implements AutoCloseable {
     }
 
     public long count() {
-        return stream.count();
+        if (source != null) {
+            return source.size();
+        }
+
+        return terminal(stream.count());
+    }
+
+    public LongSummaryStatistics longSummaryStatistics(ToLongFunction<T> mapper) {
+        return terminal(stream.mapToLong(mapper).summaryStatistics());
+    }
+
+    public DoubleSummaryStatistics doubleSummaryStatistics(ToDoubleFunction<T> mapper) {
+        return terminal(stream.mapToDouble(mapper).summaryStatistics());
+    }
+
+    /**
+     * Estimate quantiles of mapped values in a single pass and bounded memory, without sorting the whole stream.
+     *
+     * @param mapper the function that extracts measured value
+     * @return mergeable quantile sketch
+     * @see panda.std.statistics.QuantileSketch
+     */
+    public QuantileSketch quantiles(ToDoubleFunction<T> mapper) {
+        return collect(PandaCollectors.quantiles(mapper));
+    }
+
+    public LogHistogram logHistogram(ToLongFunction<T> mapper) {
+        return collect(PandaCollectors.logHistogram(mapper));
+    }
+
+    public LinearHistogram linearHistogram(ToDoubleFunction<T> mapper, double min, double max, int buckets) {
+        return collect(PandaCollectors.linearHistogram(mapper, min, max, buckets));
     }
 
     private PandaStream<T> with(Stream<T> stream) {
         this.stream = stream;
+        this.source = null;
         return this;
     }
 
     public <A, R> R collect(Collector<? super T, A, R> collector) {
-        return stream.collect(collector);
+        return terminal(stream.collect(collector));
     }
 
     public <E extends Exception> PandaStream<T> throwIfNot(Predicate<T> condition, Function<T, E> exception) {
@@ -240,12 +611,47 @@ public class PandaStream<T> implements AutoCloseable {
     }
 
     public PandaStream<T> takeWhile(Predicate<T> condition) {
-        return new PandaStream<>(StreamSupport.stream(new TakeWhileSpliterator<>(stream.spliterator(), condition), false));
+        return derive(StreamSupport.stream(new TakeWhileSpliterator<>(stream.spliterator(), condition), false), null);
     }
 
     public PandaStream<T> forEach(Consumer<? super T> consumer) {
         stream.forEach(consumer);
-        return this;
+        return terminal(this);
+    }
+
+    /**
+     * Pass elements to the consumer in batches, flushed when batch reaches the max size or max latency, whichever happens first.
+     * The batch list is reused, so the consumer must not keep a reference to it.
+     *
+     * @param maxSize the maximum number of elements in batch
+     * @param maxLatency the maximum time the first element of batch may wait for flush
+     * @param consumer the batch consumer
+     * @return this stream
+     * @see panda.std.stream.BatchingSink
+     */
+    public PandaStream<T> forEachBatch(int maxSize, Duration maxLatency, Consumer<List<T>> consumer) {
+        try (BatchingSink<T> sink = BatchingSink.synchronous(maxSize, maxLatency, consumer)) {
+            return forEach(sink);
+        }
+    }
+
+    /**
+     * Pass elements in batches to the consumer called by a background task started on the given executor.
+     * The stream blocks when there are already {@code queueDepth} batches waiting for the consumer,
+     * and the method returns after the last batch has been consumed.
+     *
+     * @param maxSize the maximum number of elements in batch
+     * @param maxLatency the maximum time the first element of batch may wait for flush
+     * @param queueDepth the maximum number of batches waiting for the consumer
+     * @param executor the executor used to run the background task
+     * @param consumer the batch consumer
+     * @return this stream
+     * @throws panda.std.AttemptFailedException if the consumer has failed
+     */
+    public PandaStream<T> forEachBatchAsync(int maxSize, Duration maxLatency, int queueDepth, Executor executor, Consumer<List<T>> consumer) {
+        try (BatchingSink<T> sink = BatchingSink.asynchronous(maxSize, maxLatency, queueDepth, executor, consumer)) {
+            return forEach(sink);
+        }
     }
 
     public <E> Result<PandaStream<T>, E> forEachByResult(Function<T, Option<E>> predicate) {
@@ -278,44 +684,125 @@ public class PandaStream<T> implements AutoCloseable {
      */
     public PandaStream<T> duplicate() {
         List<T> buffer = toList();
-        stream = buffer.stream();
+        this.stream = buffer.stream();
+        this.source = StreamSource.of(buffer);
         return of(buffer);
     }
 
+    public CachedStream<T> cached() {
+        return cached(Long.MAX_VALUE);
+    }
+
+    /**
+     * Create replayable cache of this stream.
+     * Elements are cached while the first traversal pulls them from upstream, every next traversal replays them without re-running upstream stages.
+     * Unlike {@link #duplicate()}, this method does not materialize the stream upfront.
+     *
+     * @param maxElementsInMemory the number of elements kept in memory (applied in whole chunks, see {@link panda.std.stream.CachedStream}), exceeding elements are spilled to a temporary file
+     * @return replayable cache of stream
+     * @see panda.std.stream.CachedStream
+     */
+    public CachedStream<T> cached(long maxElementsInMemory) {
+        return new CachedStream<>(stream, maxElementsInMemory);
+    }
+
     public T[] toArray(IntFunction<T[]> function) {
-        return stream.toArray(function);
+        return terminal(stream.toArray(function));
     }
 
     public List<T> toList() {
-        return stream.collect(Collectors.toList());
+        return collect(Collectors.toList());
     }
 
     public List<T> toShuffledList(Random random) {
-        return stream.collect(PandaCollectors.shufflingCollector(random));
+        return collect(PandaCollectors.shufflingCollector(random));
     }
 
     public List<T> toShuffledList() {
         return toShuffledList(ThreadLocalRandom.current());
     }
 
+    /**
+     * Collect elements into a list shuffled in parallel using {@link java.util.SplittableRandom} created from the given seed.
+     * The result depends only on the seed and the order of elements, not on the number of threads.
+     *
+     * @param seed the seed of random generator
+     * @return shuffled list of elements
+     */
+    public List<T> toShuffledList(long seed) {
+        return collect(PandaCollectors.shufflingCollector(seed));
+    }
+
     public Set<T> toSet() {
-        return stream.collect(Collectors.toSet());
+        return collect(Collectors.toSet());
     }
 
     public <K, V> Map<K, V> toMap(Function<T, K> keyMapper, Function<T, V> valueMapper) {
-        return toMap(HashMap::new, keyMapper, valueMapper);
+        return toMap(presizedMapSupplier(), keyMapper, valueMapper);
     }
 
     public <K, V> Map<K, V> toMap(Supplier<Map<K, V>> mapSupplier, Function<T, K> keyMapper, Function<T, V> valueMapper) {
-        return stream.collect(Collectors.toMap(keyMapper, valueMapper, PandaCollectors.throwingMerger(), mapSupplier));
+        return collect(Collectors.toMap(keyMapper, valueMapper, PandaCollectors.throwingMerger(), mapSupplier));
     }
 
     public <K, V> Map<K, V> toMapByPair(Supplier<Map<K, V>> mapSupplier, Function<T, Pair<K, V>> mapper) {
-        return toMap(mapSupplier, key -> mapper.apply(key).getFirst(), value -> mapper.apply(value).getSecond());
+        return terminal(stream
+                .map(mapper)
+                .collect(Collectors.toMap(Pair::getFirst, Pair::getSecond, PandaCollectors.throwingMerger(), mapSupplier)));
     }
 
     public <K, V> Map<K, V> toMapByPair(Function<T, Pair<K, V>> mapper) {
-        return toMapByPair(HashMap::new, mapper);
+        return toMapByPair(presizedMapSupplier(), mapper);
+    }
+
+    /**
+     * Collect elements into an unmodifiable map.
+     * Small maps (up to {@value #COMPACT_MAP_THRESHOLD} entries) are stored in a compact, array-backed {@link panda.std.collection.ImmutableArrayMap}.
+     */
+    public <K, V> Map<K, V> toImmutableMap(Function<T, K> keyMapper, Function<T, V> valueMapper) {
+        return toImmutableMap(toMap(keyMapper, valueMapper));
+    }
+
+    public <K, V> Map<K, V> toImmutableMapByPair(Function<T, Pair<K, V>> mapper) {
+        return toImmutableMap(toMapByPair(mapper));
+    }
+
+    private static <K, V> Map<K, V> toImmutableMap(Map<K, V> map) {
+        if (map.isEmpty()) {
+            return Collections.emptyMap();
+        }
+
+        return map.size() <= COMPACT_MAP_THRESHOLD
+                ? ImmutableArrayMap.copyOf(map)
+                : Collections.unmodifiableMap(map);
+    }
+
+    private <K, V> Supplier<Map<K, V>> presizedMapSupplier() {
+        if (stream.isParallel()) {
+            return HashMap::new;
+        }
+
+        long size = knownSize();
+
+        return size == -1
+                ? HashMap::new
+                : () -> new HashMap<>(PrimitiveMaps.hashMapCapacity(size));
+    }
+
+    private long knownSize() {
+        return source != null ? source.size() : exactSizeIfKnown();
+    }
+
+    /**
+     * Get the exact number of elements if the underlying stream reports it ({@link java.util.Spliterator#SIZED}), without consuming the stream.
+     *
+     * @return the exact size, or -1 if unknown
+     */
+    private long exactSizeIfKnown() {
+        Stream<T> source = stream;
+        Spliterator<T> spliterator = source.spliterator();
+        this.stream = StreamSupport.stream(spliterator, source.isParallel()).onClose(source::close);
+        return spliterator.getExactSizeIfKnown();
     }
 
     public Stream<T> toStream() {
@@ -331,7 +818,7 @@ public class PandaStream<T> implements AutoCloseable {
     }
 
     public static <T> PandaStream<T> of(Collection<T> collection) {
-        return of(collection.stream());
+        return new PandaStream<>(collection.stream(), StreamSource.of(collection), null);
     }
 
     public static <T> PandaStream<T> of(Iterable<T> iterable) {
@@ -340,7 +827,42 @@ public class PandaStream<T> implements AutoCloseable {
 
     @SafeVarargs
     public static <T> PandaStream<T> of(T... array) {
-        return of(Arrays.stream(array));
+        return of(array, 0, array.length);
+    }
+
+    /**
+     * Create stream of the given range of array, without copying it.
+     *
+     * @param array the source array
+     * @param fromIndex the first index (inclusive)
+     * @param toIndex the last index (exclusive)
+     * @param <T> type of elements
+     * @return stream of elements in the given range
+     */
+    public static <T> PandaStream<T> of(T[] array, int fromIndex, int toIndex) {
+        return new PandaStream<>(Arrays.stream(array, fromIndex, toIndex), StreamSource.of(array, fromIndex, toIndex), null);
+    }
+
+    /**
+     * Create stream of records stored in the remaining part of the given buffer (between its position and limit).
+     * Records are not copied - the same view instance is rebound to every next record,
+     * so elements must not be stored or collected. Parallel stream splits the buffer at record boundaries
+     * and every split uses its own view, so views are never shared between threads.
+     * Buffer is read using absolute methods, its position and limit are not modified.
+     *
+     * @param buffer the buffer that contains records (heap, direct or memory-mapped)
+     * @param layout the layout of records
+     * @param view the supplier of reusable views, called once per split
+     * @param <V> type of view
+     * @return stream of views bound to subsequent records
+     */
+    public static <V extends RecordView> PandaStream<V> ofRecords(ByteBuffer buffer, RecordLayout layout, Supplier<V> view) {
+        return ofRecords(buffer, layout, view, false);
+    }
+
+    public static <V extends RecordView> PandaStream<V> ofRecords(ByteBuffer buffer, RecordLayout layout, Supplier<V> view, boolean parallel) {
+        ByteBuffer records = buffer.duplicate().order(buffer.order());
+        return of(StreamSupport.stream(new RecordSpliterator<>(records, records.position(), records.limit(), layout, view), parallel));
     }
 
     public static <T> PandaStream<T> flatOf(Iterable<? extends Iterable<T>> iterable) {
@@ -352,6 +874,30 @@ public class PandaStream<T> implements AutoCloseable {
         return flatOf(Arrays.asList(array));
     }
 
+    /**
+     * Concatenate all given streams into a single stream, without nesting them.
+     * The result is sized if all streams are sized, and parallel execution splits it at stream boundaries.
+     *
+     * @param streams the streams to concatenate
+     * @param <T> type of elements
+     * @return stream of all elements
+     */
+    public static <T> PandaStream<T> concatAll(Iterable<PandaStream<T>> streams) {
+        Iterator<PandaStream<T>> iterator = streams.iterator();
+
+        if (!iterator.hasNext()) {
+            return empty();
+        }
+
+        PandaStream<T> result = iterator.next();
+
+        while (iterator.hasNext()) {
+            result.concat(iterator.next());
+        }
+
+        return result;
+    }
+
     public static <T> PandaStream<T> empty() {
         return new PandaStream<>(Stream.empty());
     }
@@ -0,0 +1,126 @@
+/*
+ * Copyright (c) 2021 dzikoysk
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package panda.std.stream;
+
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * Seeded merge-shuffle of random access lists.
+ * List is recursively divided into halves down to chunks of a fixed size, every chunk is shuffled (Fisher-Yates)
+ * and shuffled halves are merged using random bits (MergeShuffle by Bacher et al.).
+ * Subtasks receive their generators by splitting the generator of the parent task before they are forked,
+ * so the result depends only on the seed and the size of the list, not on the number of threads.
+ */
+final class ParallelShuffle {
+
+    static final int CHUNK_SIZE = 1 << 14;
+
+    private ParallelShuffle() { }
+
+    static <T> List<T> shuffle(List<T> list, long seed) {
+        ShuffleTask<T> task = new ShuffleTask<>(list, 0, list.size(), new SplittableRandom(seed));
+
+        if (list.size() <= CHUNK_SIZE) {
+            task.compute();
+        }
+        else {
+            ForkJoinPool.commonPool().invoke(task);
+        }
+
+        return list;
+    }
+
+    @SuppressWarnings("serial")
+    private static final class ShuffleTask<T> extends RecursiveAction {
+
+        private final List<T> list;
+        private final int from;
+        private final int to;
+        private final SplittableRandom random;
+
+        private ShuffleTask(List<T> list, int from, int to, SplittableRandom random) {
+            this.list = list;
+            this.from = from;
+            this.to = to;
+            this.random = random;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from <= CHUNK_SIZE) {
+                for (int index = to - 1; index > from; index--) {
+                    swap(list, index, from + random.nextInt(index - from + 1));
+                }
+                return;
+            }
+
+            int middle = (from + to) >>> 1;
+            ShuffleTask<T> left = new ShuffleTask<>(list, from, middle, random.split());
+            ShuffleTask<T> right = new ShuffleTask<>(list, middle, to, random.split());
+            invokeAll(left, right);
+            merge(middle);
+        }
+
+        /**
+         * Interleave two shuffled ranges by flipping coins until one of them is exhausted,
+         * then insert remaining elements at random positions.
+         */
+        private void merge(int middle) {
+            int index = from;
+            int rightIndex = middle;
+            long bits = 0;
+            int availableBits = 0;
+
+            while (true) {
+                if (availableBits == 0) {
+                    bits = random.nextLong();
+                    availableBits = Long.SIZE;
+                }
+
+                boolean takeRight = (bits & 1) == 1;
+                bits >>>= 1;
+                availableBits--;
+
+                if (takeRight) {
+                    if (rightIndex == to) {
+                        break;
+                    }
+
+                    swap(list, index, rightIndex++);
+                }
+                else if (index == rightIndex) {
+                    break;
+                }
+
+                index++;
+            }
+
+            for (; index < to; index++) {
+                swap(list, index, from + random.nextInt(index - from + 1));
+            }
+        }
+
+    }
+
+    private static <T> void swap(List<T> list, int first, int second) {
+        list.set(first, list.set(second, list.get(first)));
+    }
+
+}
@@ -0,0 +1,133 @@
+/*
+ * Copyright (c) 2021 dzikoysk
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package panda.std.stream;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Describes how records are laid out in {@link java.nio.ByteBuffer}.
+ *
+ * @see panda.std.stream.PandaStream#ofRecords(java.nio.ByteBuffer, RecordLayout, java.util.function.Supplier)
+ */
+public abstract class RecordLayout {
+
+    private RecordLayout() { }
+
+    /**
+     * @param recordSize the size of every record in bytes
+     * @return layout of records with a fixed size
+     */
+    public static RecordLayout fixed(int recordSize) {
+        if (recordSize < 1) {
+            throw new IllegalArgumentException("Record size must be positive, got " + recordSize);
+        }
+
+        return new Fixed(recordSize);
+    }
+
+    /**
+     * @return layout of records prefixed with their length stored as 4-byte int (the length does not include the prefix)
+     */
+    public static RecordLayout lengthPrefixed() {
+        return lengthPrefixed(Integer.BYTES);
+    }
+
+    /**
+     * @param prefixSize the size of unsigned length prefix, supported values: 1, 2 or 4 bytes
+     * @return layout of records prefixed with their length (the length does not include the prefix)
+     */
+    public static RecordLayout lengthPrefixed(int prefixSize) {
+        if (prefixSize != Byte.BYTES && prefixSize != Short.BYTES && prefixSize != Integer.BYTES) {
+            throw new IllegalArgumentException("Length prefix must have 1, 2 or 4 bytes, got " + prefixSize);
+        }
+
+        return new LengthPrefixed(prefixSize);
+    }
+
+    abstract int headerSize();
+
+    abstract int contentLength(ByteBuffer buffer, int offset);
+
+    /**
+     * @return size of every record (including header), or -1 if records have variable size
+     */
+    abstract int fixedSize();
+
+    private static final class Fixed extends RecordLayout {
+
+        private final int recordSize;
+
+        private Fixed(int recordSize) {
+            this.recordSize = recordSize;
+        }
+
+        @Override
+        int headerSize() {
+            return 0;
+        }
+
+        @Override
+        int contentLength(ByteBuffer buffer, int offset) {
+            return recordSize;
+        }
+
+        @Override
+        int fixedSize() {
+            return recordSize;
+        }
+
+    }
+
+    private static final class LengthPrefixed extends RecordLayout {
+
+        private final int prefixSize;
+
+        private LengthPrefixed(int prefixSize) {
+            this.prefixSize = prefixSize;
+        }
+
+        @Override
+        int headerSize() {
+            return prefixSize;
+        }
+
+        @Override
+        int contentLength(ByteBuffer buffer, int offset) {
+            switch (prefixSize) {
+                case Byte.BYTES:
+                    return Byte.toUnsignedInt(buffer.get(offset));
+                case Short.BYTES:
+                    return Short.toUnsignedInt(buffer.getShort(offset));
+                default:
+                    int length = buffer.getInt(offset);
+
+                    if (length < 0) {
+                        throw new IllegalStateException("Invalid record length " + length + " at " + offset);
+                    }
+
+                    return length;
+            }
+        }
+
+        @Override
+        int fixedSize() {
+            return -1;
+        }
+
+    }
+
+}
@@ -0,0 +1,187 @@
+/*
+ * Copyright (c) 2021 dzikoysk
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package panda.std.stream;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.Spliterator;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+
+final class RecordSpliterator<V extends RecordView> implements Spliterator<V> {
+
+    private static final int MIN_SPLIT_SIZE = 4096;
+    private static final int CHECKPOINTS_PER_SCAN = 8;
+    private static final int[] NO_CHECKPOINTS = { };
+
+    private final ByteBuffer buffer;
+    private final RecordLayout layout;
+    private final Supplier<V> viewSupplier;
+    private int position;
+    private final int end;
+    /**
+     * Sorted record boundaries between position and end, found while scanning variable size records for a split point,
+     * so next splits of this range do not scan the same records again.
+     */
+    private int[] checkpoints;
+    private V view;
+
+    RecordSpliterator(ByteBuffer buffer, int position, int end, RecordLayout layout, Supplier<V> viewSupplier) {
+        this(buffer, position, end, NO_CHECKPOINTS, layout, viewSupplier);
+    }
+
+    private RecordSpliterator(ByteBuffer buffer, int position, int end, int[] checkpoints, RecordLayout layout, Supplier<V> viewSupplier) {
+        this.buffer = buffer;
+        this.position = position;
+        this.end = end;
+        this.checkpoints = checkpoints;
+        this.layout = layout;
+        this.viewSupplier = viewSupplier;
+    }
+
+    @Override
+    public boolean tryAdvance(Consumer<? super V> action) {
+        if (position >= end) {
+            return false;
+        }
+
+        V currentView = view();
+        position = bindNext(currentView, position);
+        action.accept(currentView);
+        return true;
+    }
+
+    @Override
+    public void forEachRemaining(Consumer<? super V> action) {
+        V currentView = view();
+        int currentPosition = position;
+
+        while (currentPosition < end) {
+            currentPosition = bindNext(currentView, currentPosition);
+            this.position = currentPosition;
+            action.accept(currentView);
+        }
+    }
+
+    private int bindNext(V currentView, int offset) {
+        int contentOffset = offset + layout.headerSize();
+
+        if (contentOffset > end) {
+            throw new IllegalStateException("Truncated record header at " + offset);
+        }
+
+        int length = layout.contentLength(buffer, offset);
+        int next = contentOffset + length;
+
+        if (next > end || next < contentOffset) {
+            throw new IllegalStateException("Truncated record at " + offset + " (length " + length + ")");
+        }
+
+        currentView.bind(buffer, contentOffset, length);
+        return next;
+    }
+
+    private V view() {
+        if (view == null) {
+            view = viewSupplier.get();
+        }
+
+        return view;
+    }
+
+    @Override
+    public Spliterator<V> trySplit() {
+        int remaining = end - position;
+
+        if (remaining < MIN_SPLIT_SIZE * 2) {
+            return null;
+        }
+
+        int target = position + remaining / 2;
+        int fixedSize = layout.fixedSize();
+
+        if (fixedSize != -1) {
+            return split(position + ((target - position) / fixedSize) * fixedSize, NO_CHECKPOINTS, NO_CHECKPOINTS);
+        }
+
+        return splitVariable(target, Math.max(MIN_SPLIT_SIZE, remaining / CHECKPOINTS_PER_SCAN));
+    }
+
+    /**
+     * Find the first record boundary at or after the target.
+     * Variable size records have to be scanned (only their headers are read), starting from the nearest known boundary,
+     * and boundaries passed on the way are remembered as checkpoints for next splits.
+     */
+    private Spliterator<V> splitVariable(int target, int checkpointDistance) {
+        int known = 0;
+
+        while (known < checkpoints.length && checkpoints[known] <= target) {
+            known++;
+        }
+
+        int offset = known == 0 ? position : checkpoints[known - 1];
+        int[] scanned = new int[CHECKPOINTS_PER_SCAN];
+        int scannedCount = 0;
+        int lastCheckpoint = offset;
+
+        while (offset < target) {
+            offset += layout.headerSize() + layout.contentLength(buffer, offset);
+
+            if (offset < target && offset - lastCheckpoint >= checkpointDistance && scannedCount < scanned.length) {
+                scanned[scannedCount++] = offset;
+                lastCheckpoint = offset;
+            }
+        }
+
+        int[] prefixCheckpoints = Arrays.copyOf(checkpoints, known + scannedCount);
+        System.arraycopy(scanned, 0, prefixCheckpoints, known, scannedCount);
+        return split(offset, prefixCheckpoints, Arrays.copyOfRange(checkpoints, known, checkpoints.length));
+    }
+
+    private Spliterator<V> split(int middle, int[] prefixCheckpoints, int[] suffixCheckpoints) {
+        if (middle <= position || middle >= end) {
+            return null;
+        }
+
+        RecordSpliterator<V> prefix = new RecordSpliterator<>(duplicate(), position, middle, prefixCheckpoints, layout, viewSupplier);
+        this.position = middle;
+        this.checkpoints = suffixCheckpoints;
+        return prefix;
+    }
+
+    private ByteBuffer duplicate() {
+        return buffer.duplicate().order(buffer.order());
+    }
+
+    @Override
+    public long estimateSize() {
+        int fixedSize = layout.fixedSize();
+        return fixedSize == -1 ? end - position : (end - position) / fixedSize;
+    }
+
+    /**
+     * Fixed size records are sized, unless the buffer ends with a partial record (traversal fails on it).
+     * Buffer is owned by the caller, so records are not reported as immutable.
+     */
+    @Override
+    public int characteristics() {
+        int fixedSize = layout.fixedSize();
+        boolean sized = fixedSize != -1 && (end - position) % fixedSize == 0;
+        return sized ? ORDERED | NONNULL | SIZED | SUBSIZED : ORDERED | NONNULL;
+    }
+
+}
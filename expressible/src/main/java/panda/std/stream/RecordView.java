@@ -0,0 +1,41 @@
+/*
+ * Copyright (c) 2021 dzikoysk
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package panda.std.stream;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Reusable (flyweight) view of a single record stored in {@link java.nio.ByteBuffer}.
+ * Streams created by {@link panda.std.stream.PandaStream#ofRecords(java.nio.ByteBuffer, RecordLayout, java.util.function.Supplier)}
+ * rebind the same view instance to every next record instead of allocating a new object per record,
+ * so views must not be stored or collected - extract required values first.
+ */
+@FunctionalInterface
+public interface RecordView {
+
+    /**
+     * Bind view to the next record.
+     * Implementations should read data using absolute methods (e.g. {@link java.nio.ByteBuffer#getLong(int)}),
+     * because the buffer is shared with other views.
+     *
+     * @param buffer the buffer that contains the record
+     * @param offset the index of the first byte of record content
+     * @param length the length of record content in bytes
+     */
+    void bind(ByteBuffer buffer, int offset, int length);
+
+}
@@ -0,0 +1,193 @@
+/*
+ * Copyright (c) 2021 dzikoysk
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package panda.std.stream;
+
+import panda.std.Option;
+
+import java.lang.management.ManagementFactory;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Function;
+import java.util.function.Predicate;
+
+/**
+ * Statistics of a single stage of profiled {@link panda.std.stream.PandaStream}.
+ * Element counts are exact, time and allocations are measured for a sample of elements and extrapolated.
+ *
+ * @see panda.std.stream.PandaStream#profiled(String, java.util.function.Consumer)
+ */
+public final class StageProfile {
+
+    private final int index;
+    private final String name;
+    private final int sampleRate;
+    private final LongAdder elementsIn = new LongAdder();
+    private final LongAdder elementsOut = new LongAdder();
+    private final LongAdder sampledElements = new LongAdder();
+    private final LongAdder sampledNanos = new LongAdder();
+    private final LongAdder sampledAllocatedBytes = new LongAdder();
+
+    StageProfile(int index, String name, int sampleRate) {
+        this.index = index;
+        this.name = name;
+        this.sampleRate = sampleRate;
+    }
+
+    <A, B> Function<A, B> function(Function<A, B> function) {
+        return element -> {
+            B result = measure(function, element);
+            elementsOut.increment();
+            return result;
+        };
+    }
+
+    <A, B> Function<A, Option<B>> optionFunction(Function<A, Option<B>> function) {
+        return element -> {
+            Option<B> result = measure(function, element);
+
+            if (result.isDefined()) {
+                elementsOut.increment();
+            }
+
+            return result;
+        };
+    }
+
+    <A> Predicate<A> predicate(Predicate<A> predicate) {
+        return element -> {
+            boolean result = measure(predicate::test, element);
+
+            if (result) {
+                elementsOut.increment();
+            }
+
+            return result;
+        };
+    }
+
+    /**
+     * Count only input elements, output elements have to be reported separately using {@link #countOut(Object)}.
+     */
+    <A, B> Function<A, B> inputFunction(Function<A, B> function) {
+        return element -> measure(function, element);
+    }
+
+    void countOut(Object element) {
+        elementsOut.increment();
+    }
+
+    private <A, B> B measure(Function<A, B> function, A element) {
+        elementsIn.increment();
+
+        if (ThreadLocalRandom.current().nextInt(sampleRate) != 0) {
+            return function.apply(element);
+        }
+
+        long allocatedBytes = AllocationCounter.currentThreadAllocatedBytes();
+        long startTime = System.nanoTime();
+        B result = function.apply(element);
+        sampledNanos.add(System.nanoTime() - startTime);
+
+        if (allocatedBytes != -1) {
+            sampledAllocatedBytes.add(AllocationCounter.currentThreadAllocatedBytes() - allocatedBytes);
+        }
+
+        sampledElements.increment();
+        return result;
+    }
+
+    public int getIndex() {
+        return index;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public long getElementsIn() {
+        return elementsIn.sum();
+    }
+
+    public long getElementsOut() {
+        return elementsOut.sum();
+    }
+
+    /**
+     * @return ratio of elements passed to the next stage, or {@link Double#NaN} if stage didn't receive any element
+     */
+    public double getSelectivity() {
+        long in = getElementsIn();
+        return in == 0 ? Double.NaN : (double) getElementsOut() / in;
+    }
+
+    public long getSampledElements() {
+        return sampledElements.sum();
+    }
+
+    public long getEstimatedTimeNanos() {
+        return extrapolate(sampledNanos.sum());
+    }
+
+    /**
+     * @return estimated number of bytes allocated by this stage, or -1 if current JVM does not support allocation counting
+     */
+    public long getEstimatedAllocatedBytes() {
+        return AllocationCounter.SUPPORTED ? extrapolate(sampledAllocatedBytes.sum()) : -1;
+    }
+
+    private long extrapolate(long sampledValue) {
+        long sampled = getSampledElements();
+        return sampled == 0 ? 0 : (long) ((double) sampledValue / sampled * getElementsIn());
+    }
+
+    @Override
+    public String toString() {
+        return String.format("#%d %s: in=%d, out=%d, selectivity=%.3f, time=%.3fms, allocated=%dB",
+                index, name, getElementsIn(), getElementsOut(), getSelectivity(), getEstimatedTimeNanos() / 1_000_000.0, getEstimatedAllocatedBytes());
+    }
+
+    private static final class AllocationCounter {
+
+        private static final com.sun.management.ThreadMXBean THREAD_MX_BEAN = threadMXBean();
+        private static final boolean SUPPORTED = THREAD_MX_BEAN != null;
+
+        private static com.sun.management.ThreadMXBean threadMXBean() {
+            try {
+                java.lang.management.ThreadMXBean threadMXBean = ManagementFactory.getThreadMXBean();
+
+                if (threadMXBean instanceof com.sun.management.ThreadMXBean) {
+                    com.sun.management.ThreadMXBean sunThreadMXBean = (com.sun.management.ThreadMXBean) threadMXBean;
+
+                    if (sunThreadMXBean.isThreadAllocatedMemorySupported() && sunThreadMXBean.isThreadAllocatedMemoryEnabled()) {
+                        return sunThreadMXBean;
+                    }
+                }
+            }
+            catch (LinkageError | SecurityException ignored) {
+                // allocation counting is optional
+            }
+
+            return null;
+        }
+
+        private static long currentThreadAllocatedBytes() {
+            return SUPPORTED ? THREAD_MX_BEAN.getThreadAllocatedBytes(Thread.currentThread().getId()) : -1;
+        }
+
+    }
+
+}
@@ -0,0 +1,219 @@
+/*
+ * Copyright (c) 2021 dzikoysk
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package panda.std.stream;
+
+import org.jetbrains.annotations.Nullable;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Spliterator;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+/**
+ * Flat, n-ary concatenation of streams used by {@link panda.std.stream.PandaStream#concat(java.util.stream.Stream)}.
+ * Unlike nested {@link java.util.stream.Stream#concat(java.util.stream.Stream, java.util.stream.Stream)} calls,
+ * appending a stream does not wrap previous ones, so traversal cost and stack depth do not grow with the number of segments.
+ * Segments are stored in append-only lists, every produced stream covers segments appended before its creation.
+ *
+ * @param <T> type of elements
+ */
+final class StreamConcatenation<T> {
+
+    private final List<Stream<T>> streams = new ArrayList<>();
+    private final List<Spliterator<T>> spliterators = new ArrayList<>();
+    private boolean parallel;
+    private boolean consumed;
+    private @Nullable Stream<T> produced;
+
+    StreamConcatenation(Stream<T> head) {
+        add(head);
+    }
+
+    /**
+     * @return true if the given stream is the latest stream produced by this concatenation, so it can be extended in place
+     */
+    boolean isProducedBy(Stream<T> stream) {
+        return produced == stream;
+    }
+
+    Stream<T> append(Stream<T> stream) {
+        checkNotConsumed(this);
+        add(stream);
+        return produce();
+    }
+
+    /**
+     * Append all segments of the other concatenation instead of the stream produced by it.
+     * Spliterators of the other concatenation have been already taken from their streams, so they are reused as they are,
+     * and the streams are kept only to run their close handlers.
+     * The other concatenation is consumed (like streams passed to {@link java.util.stream.Stream#concat(java.util.stream.Stream, java.util.stream.Stream)}),
+     * so its segments are never shared by two traversals, and concatenation with itself is rejected.
+     */
+    Stream<T> appendAll(StreamConcatenation<T> other) {
+        checkNotConsumed(this);
+        checkNotConsumed(other);
+
+        if (other == this) {
+            throw new IllegalStateException("Stream cannot be concatenated with itself");
+        }
+
+        other.consumed = true;
+
+        if (other.produced != null) {
+            // link the stream produced by the other concatenation, so its further use fails as for any consumed stream
+            other.produced.spliterator();
+        }
+
+        streams.addAll(other.streams);
+        spliterators.addAll(other.spliterators);
+        this.parallel |= other.parallel;
+        return produce();
+    }
+
+    private static void checkNotConsumed(StreamConcatenation<?> concatenation) {
+        if (concatenation.consumed) {
+            throw new IllegalStateException("stream has already been operated upon or closed");
+        }
+    }
+
+    private void add(Stream<T> stream) {
+        streams.add(stream);
+        spliterators.add(stream.spliterator());
+        this.parallel |= stream.isParallel();
+    }
+
+    private Stream<T> produce() {
+        int end = streams.size();
+        Stream<T> stream = StreamSupport.stream(new ConcatSpliterator<>(spliterators, 0, end), parallel).onClose(() -> close(end));
+        this.produced = stream;
+        return stream;
+    }
+
+    private void close(int end) {
+        RuntimeException failure = null;
+
+        for (int index = 0; index < end; index++) {
+            try {
+                streams.get(index).close();
+            }
+            catch (RuntimeException exception) {
+                if (failure == null) {
+                    failure = exception;
+                }
+                else if (failure != exception) {
+                    failure.addSuppressed(exception);
+                }
+            }
+        }
+
+        if (failure != null) {
+            throw failure;
+        }
+    }
+
+    private static final class ConcatSpliterator<T> implements Spliterator<T> {
+
+        private final List<Spliterator<T>> segments;
+        private int index;
+        private final int end;
+
+        private ConcatSpliterator(List<Spliterator<T>> segments, int index, int end) {
+            this.segments = segments;
+            this.index = index;
+            this.end = end;
+        }
+
+        @Override
+        public boolean tryAdvance(Consumer<? super T> action) {
+            while (index < end) {
+                if (segments.get(index).tryAdvance(action)) {
+                    return true;
+                }
+
+                index++;
+            }
+
+            return false;
+        }
+
+        @Override
+        public void forEachRemaining(Consumer<? super T> action) {
+            while (index < end) {
+                segments.get(index++).forEachRemaining(action);
+            }
+        }
+
+        /**
+         * Split at segment boundary, or split the last remaining segment itself.
+         */
+        @Override
+        public @Nullable Spliterator<T> trySplit() {
+            int remaining = end - index;
+
+            if (remaining == 0) {
+                return null;
+            }
+
+            if (remaining == 1) {
+                return segments.get(index).trySplit();
+            }
+
+            int middle = index + remaining / 2;
+            ConcatSpliterator<T> prefix = new ConcatSpliterator<>(segments, index, middle);
+            this.index = middle;
+            return prefix;
+        }
+
+        @Override
+        public long estimateSize() {
+            long size = 0;
+
+            for (int segment = index; segment < end; segment++) {
+                size += segments.get(segment).estimateSize();
+
+                if (size < 0) {
+                    return Long.MAX_VALUE;
+                }
+            }
+
+            return size;
+        }
+
+        @Override
+        public int characteristics() {
+            if (index == end) {
+                return ORDERED | SIZED | SUBSIZED;
+            }
+
+            int characteristics = ORDERED | SIZED | SUBSIZED;
+
+            for (int segment = index; segment < end; segment++) {
+                characteristics &= segments.get(segment).characteristics();
+            }
+
+            if ((characteristics & SIZED) != 0 && estimateSize() == Long.MAX_VALUE) {
+                characteristics &= ~(SIZED | SUBSIZED);
+            }
+
+            return characteristics;
+        }
+
+    }
+
+}
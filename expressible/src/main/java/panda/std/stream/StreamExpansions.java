@@ -0,0 +1,243 @@
+/*
+ * Copyright (c) 2021 dzikoysk
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package panda.std.stream;
+
+import org.jetbrains.annotations.Nullable;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.List;
+import java.util.RandomAccess;
+import java.util.Spliterator;
+import java.util.function.BiConsumer;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+/**
+ * One-to-many stages of {@link panda.std.stream.PandaStream} implemented as spliterators,
+ * so expanding an element does not create a new stream (and its pipeline) for every element.
+ * Bulk traversal pushes results directly to the downstream consumer, short-circuiting traversal pulls them one by one.
+ */
+final class StreamExpansions {
+
+    private StreamExpansions() { }
+
+    static <T, R> Stream<R> expand(Stream<T> stream, BiConsumer<T, Consumer<R>> expander) {
+        return StreamSupport.stream(new ExpandingSpliterator<>(stream.spliterator(), expander), stream.isParallel()).onClose(stream::close);
+    }
+
+    static <T, R> Stream<R> flatMap(Stream<T> stream, Function<T, Iterable<R>> function) {
+        return StreamSupport.stream(new FlatMapSpliterator<>(stream.spliterator(), function), stream.isParallel()).onClose(stream::close);
+    }
+
+    @SuppressWarnings("unchecked")
+    static <R> void forEach(Iterable<R> iterable, Consumer<? super R> consumer) {
+        if (iterable instanceof List && iterable instanceof RandomAccess) {
+            List<R> list = (List<R>) iterable;
+
+            for (int index = 0, size = list.size(); index < size; index++) {
+                consumer.accept(list.get(index));
+            }
+        }
+        else {
+            iterable.forEach(consumer);
+        }
+    }
+
+    private static final class ExpandingSpliterator<T, R> implements Spliterator<R>, Consumer<R> {
+
+        private final Spliterator<T> upstream;
+        private final BiConsumer<T, Consumer<R>> expander;
+        private final List<R> buffer = new ArrayList<>();
+        private int bufferIndex;
+
+        private ExpandingSpliterator(Spliterator<T> upstream, BiConsumer<T, Consumer<R>> expander) {
+            this.upstream = upstream;
+            this.expander = expander;
+        }
+
+        @Override
+        public void accept(R element) {
+            buffer.add(element);
+        }
+
+        @Override
+        public boolean tryAdvance(Consumer<? super R> action) {
+            while (bufferIndex >= buffer.size()) {
+                buffer.clear();
+                this.bufferIndex = 0;
+
+                if (!upstream.tryAdvance(element -> expander.accept(element, this))) {
+                    return false;
+                }
+            }
+
+            action.accept(buffer.get(bufferIndex++));
+            return true;
+        }
+
+        @Override
+        @SuppressWarnings("unchecked")
+        public void forEachRemaining(Consumer<? super R> action) {
+            while (bufferIndex < buffer.size()) {
+                action.accept(buffer.get(bufferIndex++));
+            }
+
+            buffer.clear();
+            this.bufferIndex = 0;
+            Consumer<R> sink = (Consumer<R>) action;
+            upstream.forEachRemaining(element -> expander.accept(element, sink));
+        }
+
+        @Override
+        public @Nullable Spliterator<R> trySplit() {
+            if (bufferIndex < buffer.size()) {
+                return null;
+            }
+
+            Spliterator<T> prefix = upstream.trySplit();
+            return prefix == null ? null : new ExpandingSpliterator<>(prefix, expander);
+        }
+
+        @Override
+        public long estimateSize() {
+            long size = upstream.estimateSize() + (buffer.size() - bufferIndex);
+            return size < 0 ? Long.MAX_VALUE : size;
+        }
+
+        @Override
+        public int characteristics() {
+            return upstream.characteristics() & ORDERED;
+        }
+
+    }
+
+    private static final class FlatMapSpliterator<T, R> implements Spliterator<R>, Consumer<T> {
+
+        private final Spliterator<T> upstream;
+        private final Function<T, Iterable<R>> function;
+        private @Nullable Iterable<R> current;
+        private @Nullable List<R> currentList;
+        private @Nullable Iterator<R> currentIterator;
+        private int currentIndex;
+
+        private FlatMapSpliterator(Spliterator<T> upstream, Function<T, Iterable<R>> function) {
+            this.upstream = upstream;
+            this.function = function;
+        }
+
+        @Override
+        public void accept(T element) {
+            this.current = function.apply(element);
+        }
+
+        @Override
+        public boolean tryAdvance(Consumer<? super R> action) {
+            while (true) {
+                if (currentList != null) {
+                    if (currentIndex < currentList.size()) {
+                        action.accept(currentList.get(currentIndex++));
+                        return true;
+                    }
+
+                    this.currentList = null;
+                }
+                else if (currentIterator != null) {
+                    if (currentIterator.hasNext()) {
+                        action.accept(currentIterator.next());
+                        return true;
+                    }
+
+                    this.currentIterator = null;
+                }
+
+                if (!upstream.tryAdvance(this)) {
+                    return false;
+                }
+
+                open(current);
+                this.current = null;
+            }
+        }
+
+        @SuppressWarnings("unchecked")
+        private void open(Iterable<R> iterable) {
+            if (iterable instanceof List && iterable instanceof RandomAccess) {
+                this.currentList = (List<R>) iterable;
+                this.currentIndex = 0;
+            }
+            else if (!(iterable instanceof Collection) || !((Collection<R>) iterable).isEmpty()) {
+                this.currentIterator = iterable.iterator();
+            }
+        }
+
+        @Override
+        public void forEachRemaining(Consumer<? super R> action) {
+            drainOpened(action);
+            upstream.forEachRemaining(element -> forEach(function.apply(element), action));
+        }
+
+        /**
+         * Drain the collection opened by the last call to {@link #tryAdvance(java.util.function.Consumer)}.
+         */
+        private void drainOpened(Consumer<? super R> action) {
+            if (currentList != null) {
+                while (currentIndex < currentList.size()) {
+                    action.accept(currentList.get(currentIndex++));
+                }
+
+                this.currentList = null;
+            }
+
+            if (currentIterator != null) {
+                currentIterator.forEachRemaining(action);
+                this.currentIterator = null;
+            }
+        }
+
+        @Override
+        public @Nullable Spliterator<R> trySplit() {
+            if (currentList != null || currentIterator != null) {
+                return null;
+            }
+
+            Spliterator<T> prefix = upstream.trySplit();
+            return prefix == null ? null : new FlatMapSpliterator<>(prefix, function);
+        }
+
+        @Override
+        public long estimateSize() {
+            long size = upstream.estimateSize();
+
+            if (currentList != null) {
+                size += currentList.size() - currentIndex;
+            }
+
+            return size < 0 ? Long.MAX_VALUE : size;
+        }
+
+        @Override
+        public int characteristics() {
+            return upstream.characteristics() & ORDERED;
+        }
+
+    }
+
+}
@@ -0,0 +1,296 @@
+/*
+ * Copyright (c) 2021 dzikoysk
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package panda.std.stream;
+
+import org.jetbrains.annotations.Nullable;
+import panda.std.collection.PrimitiveMaps;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.function.BiFunction;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+/**
+ * Join operators used by {@link panda.std.stream.PandaStream}.
+ */
+final class StreamJoins {
+
+    private StreamJoins() { }
+
+    /**
+     * Build hash table from the build side (the stream is fully consumed and closed) and lazily probe it with elements of the probe side.
+     * Order of the probe side is preserved, matches of a single probe element are returned in the order of the build side.
+     *
+     * @param buildSize the number of elements in build side, or -1 if unknown
+     * @param outer if true, probe elements without any match are passed to the combiner with null
+     */
+    static <P, B, K, R> Stream<R> hashJoin(
+            Stream<P> probe, Function<P, K> probeKey,
+            Stream<B> build, Function<B, K> buildKey, long buildSize,
+            boolean outer, BiFunction<P, @Nullable B, R> combiner
+    ) {
+        Map<K, List<B>> table = buildSize == -1 ? new HashMap<>() : new HashMap<>(PrimitiveMaps.hashMapCapacity(buildSize));
+
+        try (Stream<B> buildStream = build) {
+            buildStream.forEachOrdered(element -> table.computeIfAbsent(buildKey.apply(element), key -> new ArrayList<>(1)).add(element));
+        }
+
+        HashJoinSpliterator<P, B, K, R> spliterator = new HashJoinSpliterator<>(probe.spliterator(), table, probeKey, outer, combiner);
+        return StreamSupport.stream(spliterator, probe.isParallel()).onClose(probe::close);
+    }
+
+    /**
+     * Join two streams sorted (ascending, according to the given comparator) by their keys.
+     * Only elements of the right side sharing the current key are buffered, so unique keys are joined in constant memory.
+     *
+     * @param outer if true, left elements without any match are passed to the combiner with null
+     */
+    static <L, U, K, R> Stream<R> mergeJoin(
+            Stream<L> left, Function<L, K> leftKey,
+            Stream<U> right, Function<U, K> rightKey,
+            Comparator<? super K> comparator, boolean outer, BiFunction<L, @Nullable U, R> combiner
+    ) {
+        MergeJoinSpliterator<L, U, K, R> spliterator = new MergeJoinSpliterator<>(left.iterator(), leftKey, right.iterator(), rightKey, comparator, outer, combiner);
+
+        return StreamSupport.stream(spliterator, false)
+                .onClose(left::close)
+                .onClose(right::close);
+    }
+
+    private static final class HashJoinSpliterator<P, B, K, R> implements Spliterator<R>, Consumer<P> {
+
+        private final Spliterator<P> probe;
+        private final Map<K, List<B>> table;
+        private final Function<P, K> probeKey;
+        private final boolean outer;
+        private final BiFunction<P, @Nullable B, R> combiner;
+        private @Nullable P current;
+        private @Nullable List<B> bucket;
+        private int bucketIndex;
+
+        private HashJoinSpliterator(Spliterator<P> probe, Map<K, List<B>> table, Function<P, K> probeKey, boolean outer, BiFunction<P, @Nullable B, R> combiner) {
+            this.probe = probe;
+            this.table = table;
+            this.probeKey = probeKey;
+            this.outer = outer;
+            this.combiner = combiner;
+        }
+
+        @Override
+        public void accept(P element) {
+            this.current = element;
+        }
+
+        @Override
+        public boolean tryAdvance(Consumer<? super R> action) {
+            while (true) {
+                if (bucket != null) {
+                    if (bucketIndex < bucket.size()) {
+                        action.accept(combiner.apply(current, bucket.get(bucketIndex++)));
+                        return true;
+                    }
+
+                    this.bucket = null;
+                }
+
+                if (!probe.tryAdvance(this)) {
+                    return false;
+                }
+
+                List<B> matches = table.get(probeKey.apply(current));
+
+                if (matches != null) {
+                    this.bucket = matches;
+                    this.bucketIndex = 0;
+                }
+                else if (outer) {
+                    action.accept(combiner.apply(current, null));
+                    return true;
+                }
+            }
+        }
+
+        @Override
+        public void forEachRemaining(Consumer<? super R> action) {
+            if (bucket != null) {
+                while (bucketIndex < bucket.size()) {
+                    action.accept(combiner.apply(current, bucket.get(bucketIndex++)));
+                }
+
+                this.bucket = null;
+            }
+
+            probe.forEachRemaining(element -> {
+                List<B> matches = table.get(probeKey.apply(element));
+
+                if (matches != null) {
+                    for (B matched : matches) {
+                        action.accept(combiner.apply(element, matched));
+                    }
+                }
+                else if (outer) {
+                    action.accept(combiner.apply(element, null));
+                }
+            });
+        }
+
+        @Override
+        public @Nullable Spliterator<R> trySplit() {
+            if (bucket != null) {
+                return null;
+            }
+
+            Spliterator<P> prefix = probe.trySplit();
+            return prefix == null ? null : new HashJoinSpliterator<>(prefix, table, probeKey, outer, combiner);
+        }
+
+        @Override
+        public long estimateSize() {
+            return probe.estimateSize();
+        }
+
+        @Override
+        public int characteristics() {
+            return probe.characteristics() & ORDERED;
+        }
+
+    }
+
+    private static final class MergeJoinSpliterator<L, U, K, R> extends Spliterators.AbstractSpliterator<R> {
+
+        private final Iterator<L> left;
+        private final Function<L, K> leftKey;
+        private final Iterator<U> right;
+        private final Function<U, K> rightKey;
+        private final Comparator<? super K> comparator;
+        private final boolean outer;
+        private final BiFunction<L, @Nullable U, R> combiner;
+        private final List<U> run = new ArrayList<>();
+        private @Nullable K runKey;
+        private int runIndex;
+        private @Nullable L current;
+        private @Nullable K currentKey;
+        private boolean started;
+        private @Nullable U nextRight;
+        private @Nullable K nextRightKey;
+        private boolean hasNextRight;
+        private boolean rightStarted;
+
+        private MergeJoinSpliterator(
+                Iterator<L> left, Function<L, K> leftKey,
+                Iterator<U> right, Function<U, K> rightKey,
+                Comparator<? super K> comparator, boolean outer, BiFunction<L, @Nullable U, R> combiner
+        ) {
+            super(Long.MAX_VALUE, ORDERED);
+            this.left = left;
+            this.leftKey = leftKey;
+            this.right = right;
+            this.rightKey = rightKey;
+            this.comparator = comparator;
+            this.outer = outer;
+            this.combiner = combiner;
+        }
+
+        @Override
+        public boolean tryAdvance(Consumer<? super R> action) {
+            while (true) {
+                if (runIndex < run.size()) {
+                    action.accept(combiner.apply(current, run.get(runIndex++)));
+                    return true;
+                }
+
+                if (!left.hasNext()) {
+                    return false;
+                }
+
+                L element = left.next();
+                K key = leftKey.apply(element);
+
+                if (started && comparator.compare(key, currentKey) < 0) {
+                    throw new IllegalStateException("Left stream is not sorted by join key: " + key + " follows " + currentKey);
+                }
+
+                this.started = true;
+                this.current = element;
+                this.currentKey = key;
+                this.runIndex = 0;
+
+                if (run.isEmpty() || comparator.compare(key, runKey) != 0) {
+                    collectRun(key);
+                }
+
+                if (run.isEmpty() && outer) {
+                    action.accept(combiner.apply(element, null));
+                    return true;
+                }
+            }
+        }
+
+        /**
+         * Skip right elements with lower keys and buffer elements with the given key.
+         */
+        private void collectRun(K key) {
+            run.clear();
+
+            if (!rightStarted) {
+                this.rightStarted = true;
+                advanceRight();
+            }
+
+            while (hasNextRight && comparator.compare(nextRightKey, key) < 0) {
+                advanceRight();
+            }
+
+            while (hasNextRight && comparator.compare(nextRightKey, key) == 0) {
+                run.add(nextRight);
+                advanceRight();
+            }
+
+            this.runKey = key;
+        }
+
+        private void advanceRight() {
+            if (!right.hasNext()) {
+                this.hasNextRight = false;
+                this.nextRight = null;
+                return;
+            }
+
+            U element = right.next();
+            K key = rightKey.apply(element);
+
+            if (hasNextRight && comparator.compare(key, nextRightKey) < 0) {
+                throw new IllegalStateException("Right stream is not sorted by join key: " + key + " follows " + nextRightKey);
+            }
+
+            this.hasNextRight = true;
+            this.nextRight = element;
+            this.nextRightKey = key;
+        }
+
+    }
+
+}
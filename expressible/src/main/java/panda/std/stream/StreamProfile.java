@@ -0,0 +1,64 @@
+/*
+ * Copyright (c) 2021 dzikoysk
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package panda.std.stream;
+
+import java.util.List;
+
+/**
+ * Report of profiled {@link panda.std.stream.PandaStream} pipeline.
+ *
+ * @see panda.std.stream.PandaStream#profiled(String, java.util.function.Consumer)
+ */
+public final class StreamProfile {
+
+    private final String name;
+    private final List<StageProfile> stages;
+    private final long durationNanos;
+
+    StreamProfile(String name, List<StageProfile> stages, long durationNanos) {
+        this.name = name;
+        this.stages = stages;
+        this.durationNanos = durationNanos;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public List<StageProfile> getStages() {
+        return stages;
+    }
+
+    /**
+     * @return time between enabling the profiler and the terminal operation (or close)
+     */
+    public long getDurationNanos() {
+        return durationNanos;
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder builder = new StringBuilder(String.format("Stream '%s' (%.3fms)", name, durationNanos / 1_000_000.0));
+
+        for (StageProfile stage : stages) {
+            builder.append(System.lineSeparator()).append("  ").append(stage);
+        }
+
+        return builder.toString();
+    }
+
+}
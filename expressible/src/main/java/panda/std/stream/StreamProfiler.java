@@ -0,0 +1,56 @@
+/*
+ * Copyright (c) 2021 dzikoysk
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package panda.std.stream;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Consumer;
+
+final class StreamProfiler {
+
+    private final String name;
+    private final int sampleRate;
+    private final Consumer<StreamProfile> listener;
+    private final List<StageProfile> stages = new ArrayList<>();
+    private final AtomicBoolean reported = new AtomicBoolean();
+    private final long startTime = System.nanoTime();
+
+    StreamProfiler(String name, int sampleRate, Consumer<StreamProfile> listener) {
+        if (sampleRate < 1) {
+            throw new IllegalArgumentException("Sample rate must be positive, got " + sampleRate);
+        }
+
+        this.name = name;
+        this.sampleRate = sampleRate;
+        this.listener = listener;
+    }
+
+    StageProfile stage(String stageName) {
+        StageProfile stage = new StageProfile(stages.size(), stageName, sampleRate);
+        stages.add(stage);
+        return stage;
+    }
+
+    void report() {
+        if (reported.compareAndSet(false, true)) {
+            listener.accept(new StreamProfile(name, Collections.unmodifiableList(new ArrayList<>(stages)), System.nanoTime() - startTime));
+        }
+    }
+
+}
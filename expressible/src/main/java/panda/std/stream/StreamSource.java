@@ -0,0 +1,204 @@
+/*
+ * Copyright (c) 2021 dzikoysk
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package panda.std.stream;
+
+import org.jetbrains.annotations.Nullable;
+
+import java.util.Collection;
+import java.util.Deque;
+import java.util.List;
+import java.util.RandomAccess;
+import java.util.function.Function;
+
+/**
+ * Describes the source of {@link panda.std.stream.PandaStream} as long as the pipeline preserves its elements one-to-one (source itself or map-only stages),
+ * so terminal operations like count, head or last can be answered without traversing the whole stream.
+ *
+ * @param <T> type of elements
+ */
+abstract class StreamSource<T> {
+
+    abstract int size();
+
+    /**
+     * @return the first element, the source must not be empty
+     */
+    abstract T first();
+
+    /**
+     * @return the last element, the source must not be empty
+     */
+    abstract T last();
+
+    /**
+     * @return view of the source without the first n elements, or null if it cannot be represented without traversal
+     */
+    abstract @Nullable StreamSource<T> skip(long n);
+
+    boolean isEmpty() {
+        return size() == 0;
+    }
+
+    <R> StreamSource<R> map(Function<? super T, ? extends R> function) {
+        return new MappedSource<>(this, function);
+    }
+
+    @SuppressWarnings("unchecked")
+    static <T> @Nullable StreamSource<T> of(Collection<T> collection) {
+        if (collection instanceof List && collection instanceof RandomAccess) {
+            return new ListSource<>((List<T>) collection);
+        }
+
+        if (collection instanceof Deque) {
+            return new DequeSource<>((Deque<T>) collection);
+        }
+
+        return null;
+    }
+
+    static <T> StreamSource<T> of(T[] array, int fromIndex, int toIndex) {
+        return new ArraySource<>(array, fromIndex, toIndex);
+    }
+
+    private static final class ListSource<T> extends StreamSource<T> {
+
+        private final List<T> list;
+
+        private ListSource(List<T> list) {
+            this.list = list;
+        }
+
+        @Override
+        int size() {
+            return list.size();
+        }
+
+        @Override
+        T first() {
+            return list.get(0);
+        }
+
+        @Override
+        T last() {
+            return list.get(list.size() - 1);
+        }
+
+        @Override
+        StreamSource<T> skip(long n) {
+            return n == 0 ? this : new ListSource<>(list.subList((int) Math.min(n, list.size()), list.size()));
+        }
+
+    }
+
+    private static final class ArraySource<T> extends StreamSource<T> {
+
+        private final T[] array;
+        private final int fromIndex;
+        private final int toIndex;
+
+        private ArraySource(T[] array, int fromIndex, int toIndex) {
+            this.array = array;
+            this.fromIndex = fromIndex;
+            this.toIndex = toIndex;
+        }
+
+        @Override
+        int size() {
+            return toIndex - fromIndex;
+        }
+
+        @Override
+        T first() {
+            return array[fromIndex];
+        }
+
+        @Override
+        T last() {
+            return array[toIndex - 1];
+        }
+
+        @Override
+        StreamSource<T> skip(long n) {
+            return new ArraySource<>(array, n >= size() ? toIndex : fromIndex + (int) n, toIndex);
+        }
+
+    }
+
+    private static final class DequeSource<T> extends StreamSource<T> {
+
+        private final Deque<T> deque;
+
+        private DequeSource(Deque<T> deque) {
+            this.deque = deque;
+        }
+
+        @Override
+        int size() {
+            return deque.size();
+        }
+
+        @Override
+        T first() {
+            return deque.getFirst();
+        }
+
+        @Override
+        T last() {
+            return deque.getLast();
+        }
+
+        @Override
+        @Nullable StreamSource<T> skip(long n) {
+            return n == 0 ? this : null;
+        }
+
+    }
+
+    private static final class MappedSource<S, T> extends StreamSource<T> {
+
+        private final StreamSource<S> source;
+        private final Function<? super S, ? extends T> function;
+
+        private MappedSource(StreamSource<S> source, Function<? super S, ? extends T> function) {
+            this.source = source;
+            this.function = function;
+        }
+
+        @Override
+        int size() {
+            return source.size();
+        }
+
+        @Override
+        T first() {
+            return function.apply(source.first());
+        }
+
+        @Override
+        T last() {
+            return function.apply(source.last());
+        }
+
+        @Override
+        @Nullable StreamSource<T> skip(long n) {
+            StreamSource<S> skipped = source.skip(n);
+            return skipped == null ? null : skipped.map(function);
+        }
+
+    }
+
+}
@@ -16,18 +16,19 @@
 
 package panda.std.stream;
 
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.Optional;
+import java.util.RandomAccess;
 import java.util.function.BinaryOperator;
 import java.util.function.Function;
 import java.util.function.Predicate;
 import java.util.function.ToLongFunction;
-import java.util.stream.Collectors;
-import java.util.stream.Stream;
-import java.util.stream.StreamSupport;
 
 public final class StreamUtils {
 
@@ -57,27 +58,161 @@ public final class StreamUtils {
     }
 
     public static <T> long sum(Iterable<T> iterable, ToLongFunction<? super T> function) {
-        return stream(iterable).mapToLong(function).sum();
+        return sumLongs(iterable, function);
     }
 
+    /**
+     * Sum values of all elements using a plain loop (indexed for random access lists), without creating a stream.
+     */
     public static <T> long sumLongs(Iterable<T> iterable, ToLongFunction<? super T> function) {
-        return stream(iterable).mapToLong(function).sum();
+        long sum = 0;
+
+        if (iterable instanceof List && iterable instanceof RandomAccess) {
+            List<T> list = (List<T>) iterable;
+
+            for (int index = 0, size = list.size(); index < size; index++) {
+                sum += function.applyAsLong(list.get(index));
+            }
+        }
+        else {
+            for (T element : iterable) {
+                sum += function.applyAsLong(element);
+            }
+        }
+
+        return sum;
+    }
+
+    public static <T> long sum(T[] array, ToLongFunction<? super T> function) {
+        long sum = 0;
+
+        for (T element : array) {
+            sum += function.applyAsLong(element);
+        }
+
+        return sum;
+    }
+
+    /**
+     * Sum values of all elements using parallel stream, intended for large collections where the per-element work outweighs the cost of splitting.
+     */
+    public static <T> long parallelSum(Collection<T> collection, ToLongFunction<? super T> function) {
+        return collection.parallelStream().mapToLong(function).sum();
+    }
+
+    public static <T> long parallelSum(T[] array, ToLongFunction<? super T> function) {
+        return Arrays.stream(array).parallel().mapToLong(function).sum();
     }
 
     public static <T> long count(Iterable<T> iterable, Predicate<T> filter) {
-        return stream(iterable).filter(filter).count();
+        long count = 0;
+
+        if (iterable instanceof List && iterable instanceof RandomAccess) {
+            List<T> list = (List<T>) iterable;
+
+            for (int index = 0, size = list.size(); index < size; index++) {
+                if (filter.test(list.get(index))) {
+                    count++;
+                }
+            }
+        }
+        else {
+            for (T element : iterable) {
+                if (filter.test(element)) {
+                    count++;
+                }
+            }
+        }
+
+        return count;
+    }
+
+    public static <T> long count(T[] array, Predicate<T> filter) {
+        long count = 0;
+
+        for (T element : array) {
+            if (filter.test(element)) {
+                count++;
+            }
+        }
+
+        return count;
+    }
+
+    public static <T> long parallelCount(Collection<T> collection, Predicate<T> filter) {
+        return collection.parallelStream().filter(filter).count();
+    }
+
+    public static <T> long parallelCount(T[] array, Predicate<T> filter) {
+        return Arrays.stream(array).parallel().filter(filter).count();
     }
 
     public static <T> Optional<T> findFirst(Iterable<T> iterable, Predicate<T> filter) {
-        return stream(iterable).filter(filter).findFirst();
+        if (iterable instanceof List && iterable instanceof RandomAccess) {
+            List<T> list = (List<T>) iterable;
+
+            for (int index = 0, size = list.size(); index < size; index++) {
+                T element = list.get(index);
+
+                if (filter.test(element)) {
+                    return Optional.of(element);
+                }
+            }
+
+            return Optional.empty();
+        }
+
+        for (T element : iterable) {
+            if (filter.test(element)) {
+                return Optional.of(element);
+            }
+        }
+
+        return Optional.empty();
+    }
+
+    public static <T> Optional<T> findFirst(T[] array, Predicate<T> filter) {
+        for (T element : array) {
+            if (filter.test(element)) {
+                return Optional.of(element);
+            }
+        }
+
+        return Optional.empty();
     }
 
+    /**
+     * Map all elements into a list allocated upfront for the size of collection.
+     */
     public static <R, T> Collection<R> map(Iterable<T> iterable, Function<T, R> mapper) {
-        return stream(iterable).map(mapper).collect(Collectors.toList());
+        if (iterable instanceof List && iterable instanceof RandomAccess) {
+            List<T> list = (List<T>) iterable;
+            List<R> result = new ArrayList<>(list.size());
+
+            for (int index = 0, size = list.size(); index < size; index++) {
+                result.add(mapper.apply(list.get(index)));
+            }
+
+            return result;
+        }
+
+        List<R> result = iterable instanceof Collection ? new ArrayList<>(((Collection<T>) iterable).size()) : new ArrayList<>();
+
+        for (T element : iterable) {
+            result.add(mapper.apply(element));
+        }
+
+        return result;
     }
 
-    private static <T> Stream<T> stream(Iterable<T> iterable) {
-        return StreamSupport.stream(iterable.spliterator(), false);
+    public static <R, T> Collection<R> map(T[] array, Function<T, R> mapper) {
+        List<R> result = new ArrayList<>(array.length);
+
+        for (T element : array) {
+            result.add(mapper.apply(element));
+        }
+
+        return result;
     }
 
     public static <T> BinaryOperator<T> emptyBinaryOperator() {
@@ -0,0 +1,75 @@
+/*
+ * Copyright (c) 2021 dzikoysk
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package panda.std
+
+import org.junit.jupiter.api.Assertions.assertEquals
+import org.junit.jupiter.api.Assertions.assertFalse
+import org.junit.jupiter.api.Assertions.assertNotSame
+import org.junit.jupiter.api.Assertions.assertThrows
+import org.junit.jupiter.api.Assertions.assertTrue
+import org.junit.jupiter.api.Test
+import java.util.concurrent.CompletionException
+
+class AsyncLazyTest {
+
+    private val tasks = mutableListOf<Runnable>()
+
+    @Test
+    fun `should share pending initialization between callers`() {
+        var calls = 0
+        val lazy = AsyncLazy({ ++calls }, { tasks.add(it) })
+
+        val first = lazy.get()
+        val second = lazy.get()
+        assertNotSame(first, second)
+        assertFalse(lazy.isInitialized)
+        assertEquals(1, tasks.size)
+
+        first.cancel(true)
+        lazy.get().complete(-1)
+        tasks.removeAt(0).run()
+        assertTrue(first.isCancelled)
+        assertEquals(1, second.join())
+        assertEquals(1, lazy.get().join())
+        assertEquals(1, lazy.getIfReady().get())
+        assertEquals(1, calls)
+    }
+
+    @Test
+    fun `should start initialization eagerly`() {
+        AsyncLazy.eager({ "value" }, { tasks.add(it) }, AsyncLazy.FailurePolicy.CACHE)
+        assertEquals(1, tasks.size)
+    }
+
+    @Test
+    fun `should cache or retry failures according to policy`() {
+        var fail = true
+        val supplier = { if (fail) throw IllegalStateException() else "value" }
+
+        val cached = AsyncLazy(supplier, Runnable::run)
+        assertThrows(CompletionException::class.java) { cached.get().join() }
+        fail = false
+        assertTrue(cached.hasFailed())
+        assertThrows(CompletionException::class.java) { cached.get().join() }
+
+        fail = true
+        val retried = AsyncLazy(supplier, Runnable::run, AsyncLazy.FailurePolicy.RETRY)
+        assertThrows(CompletionException::class.java) { retried.get().join() }
+        fail = false
+        assertEquals("value", retried.get().join())
+    }
+
+}
@@ -2,6 +2,12 @@ package panda.std
 
 import org.junit.jupiter.api.Test
 import panda.std.reactive.Completable
+import java.util.concurrent.CountDownLatch
+import java.util.concurrent.Executor
+import java.util.concurrent.Executors
+import java.util.concurrent.RejectedExecutionException
+import java.util.concurrent.TimeUnit
+import java.util.concurrent.atomic.AtomicInteger
 import org.junit.jupiter.api.Assertions.assertEquals
 import org.junit.jupiter.api.Assertions.assertThrows
 import org.junit.jupiter.api.Assertions.assertTrue
@@ -61,4 +67,119 @@ class CompletableTest {
         assertEquals("value", Completable.completed("value").toFuture().get())
     }
 
+    @Test
+    fun `should notify subscribers in subscription order`() {
+        val received = mutableListOf<Int>()
+        val completable = Completable.create<Int>()
+
+        (1..3).forEach { index -> completable.subscribe { received.add(index * it) } }
+        completable.complete(10)
+
+        assertEquals(listOf(10, 20, 30), received)
+    }
+
+    @Test
+    fun `should notify all subscribers even if one of them throws`() {
+        val received = mutableListOf<Int>()
+        val completable = Completable.create<Int>()
+            .subscribe { throw IllegalStateException("first") }
+            .subscribe { received.add(it) }
+            .subscribe { throw IllegalArgumentException("third") }
+
+        val failure = assertThrows(IllegalStateException::class.java) { completable.complete(1) }
+        assertEquals(listOf(1), received)
+        assertEquals(1, failure.suppressed.size)
+        assertTrue(completable.isReady)
+    }
+
+    @Test
+    fun `should notify every concurrent subscriber exactly once`() {
+        val executor = Executors.newFixedThreadPool(8)
+
+        try {
+            repeat(100) {
+                val completable = Completable.create<Int>()
+                val notifications = AtomicInteger()
+                val start = CountDownLatch(1)
+
+                val tasks = (1..16).map { index ->
+                    executor.submit {
+                        start.await()
+
+                        if (index == 8) {
+                            completable.complete(1)
+                        }
+                        else {
+                            completable.subscribe { notifications.addAndGet(it) }
+                        }
+                    }
+                }
+
+                start.countDown()
+                tasks.forEach { it.get() }
+                assertEquals(15, notifications.get())
+            }
+        }
+        finally {
+            executor.shutdown()
+        }
+    }
+
+    @Test
+    fun `should run async stages on the given executor`() {
+        val executor = Executors.newSingleThreadExecutor { Thread(it, "completable-worker") }
+
+        try {
+            val completable = Completable.create<String>()
+            val threads = mutableListOf<String>()
+            val done = CountDownLatch(1)
+
+            completable
+                .thenApplyAsync({ threads.add(Thread.currentThread().name); it.toInt() }, executor)
+                .thenComposeAsync({ threads.add(Thread.currentThread().name); Completable.completed(it + 1) }, executor)
+                .thenAsync({ threads.add(Thread.currentThread().name); assertEquals(2, it); done.countDown() }, executor)
+
+            completable.complete("1")
+
+            assertTrue(done.await(5, TimeUnit.SECONDS))
+            assertEquals(List(3) { "completable-worker" }, threads)
+        }
+        finally {
+            executor.shutdown()
+        }
+    }
+
+    @Test
+    fun `should report failures of async stages without breaking notification`() {
+        val thread = Thread.currentThread()
+        val handler = thread.uncaughtExceptionHandler
+        val reported = mutableListOf<Throwable>()
+        thread.uncaughtExceptionHandler = Thread.UncaughtExceptionHandler { _, failure -> reported.add(failure) }
+
+        try {
+            val received = mutableListOf<Int>()
+            val completable = Completable.create<Int>()
+            val mapped = completable.thenApplyAsync<Int>({ throw IllegalStateException("mapper") }, Executor { it.run() })
+            val rejected = completable.thenApplyAsync({ it + 1 }, Executor { throw RejectedExecutionException("rejected") })
+            completable.subscribe { received.add(it) }
+
+            completable.complete(1)
+
+            assertEquals(listOf(1), received)
+            assertTrue(mapped.isUnprepared)
+            assertTrue(rejected.isUnprepared)
+            assertEquals(listOf(IllegalStateException::class.java, RejectedExecutionException::class.java), reported.map { it.javaClass })
+        }
+        finally {
+            thread.uncaughtExceptionHandler = handler
+        }
+    }
+
+    @Test
+    fun `should complete async with default executor`() {
+        val completable = Completable.create<String>().completeAsync { "value" }
+        assertEquals("value", completable.toFuture().get(5, TimeUnit.SECONDS))
+        assertEquals(5, completable.thenApplyAsync { it.length }.toFuture().get(5, TimeUnit.SECONDS))
+    }
+
 }
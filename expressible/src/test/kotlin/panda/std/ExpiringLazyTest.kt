@@ -0,0 +1,106 @@
+/*
+ * Copyright (c) 2021 dzikoysk
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package panda.std
+
+import org.junit.jupiter.api.Assertions.assertEquals
+import org.junit.jupiter.api.Assertions.assertFalse
+import org.junit.jupiter.api.Assertions.assertTrue
+import org.junit.jupiter.api.Test
+import java.time.Clock
+import java.time.Duration
+import java.time.Instant
+import java.time.ZoneId
+import java.time.ZoneOffset
+
+class ExpiringLazyTest {
+
+    private class ManualClock(var time: Long = 0) : Clock() {
+        override fun getZone(): ZoneId = ZoneOffset.UTC
+        override fun withZone(zone: ZoneId?): Clock = this
+        override fun instant(): Instant = Instant.ofEpochMilli(time)
+    }
+
+    private val clock = ManualClock()
+    private val tasks = mutableListOf<Runnable>()
+    private var version = 0
+
+    @Test
+    fun `should return stale value while refreshing in background`() {
+        val lazy = ExpiringLazy({ ++version }, Duration.ofSeconds(10), null, { tasks.add(it) }, clock)
+        assertEquals(1, lazy.get())
+
+        clock.time = 10_000
+        assertEquals(1, lazy.get())
+        assertEquals(1, lazy.get())
+        assertEquals(1, tasks.size)
+        assertTrue(lazy.isRefreshing)
+
+        tasks.removeAt(0).run()
+        assertFalse(lazy.isRefreshing)
+        assertEquals(2, lazy.get())
+        assertTrue(tasks.isEmpty())
+    }
+
+    @Test
+    fun `should block readers after expiration`() {
+        val lazy = ExpiringLazy({ ++version }, Duration.ofSeconds(10), Duration.ofSeconds(30), { tasks.add(it) }, clock)
+        assertEquals(1, lazy.get())
+
+        clock.time = 30_000
+        assertEquals(2, lazy.get())
+        assertTrue(tasks.isEmpty())
+    }
+
+    @Test
+    fun `should keep previous value if refresh fails`() {
+        var fail = false
+        val lazy = ExpiringLazy({ if (fail) throw IllegalStateException() else ++version }, Duration.ofSeconds(1), null, { tasks.add(it) }, clock)
+        assertEquals(1, lazy.get())
+
+        fail = true
+        clock.time = 1_000
+        assertEquals(1, lazy.get())
+        tasks.removeAt(0).run()
+        assertTrue(lazy.refreshFailure.isDefined)
+        assertEquals(1, lazy.get())
+        assertTrue(tasks.isEmpty())
+
+        clock.time = 2_000
+        assertEquals(1, lazy.get())
+        assertEquals(1, tasks.size)
+    }
+
+    @Test
+    fun `should drop refreshed value if invalidated or reloaded during refresh`() {
+        val lazy = ExpiringLazy({ ++version }, Duration.ofSeconds(1), Duration.ofSeconds(3), { tasks.add(it) }, clock)
+        assertEquals(1, lazy.get())
+
+        clock.time = 1_000
+        assertEquals(1, lazy.get())
+        lazy.invalidate()
+        tasks.removeAt(0).run()
+        assertFalse(lazy.isInitialized)
+        assertEquals(3, lazy.get())
+
+        clock.time = 2_000
+        assertEquals(3, lazy.get())
+        clock.time = 5_000
+        assertEquals(4, lazy.get())
+        tasks.removeAt(0).run()
+        assertEquals(4, lazy.get())
+    }
+
+}
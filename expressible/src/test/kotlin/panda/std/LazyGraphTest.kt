@@ -0,0 +1,83 @@
+/*
+ * Copyright (c) 2021 dzikoysk
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package panda.std
+
+import org.junit.jupiter.api.Assertions.assertEquals
+import org.junit.jupiter.api.Assertions.assertFalse
+import org.junit.jupiter.api.Assertions.assertThrows
+import org.junit.jupiter.api.Assertions.assertTrue
+import org.junit.jupiter.api.Test
+import java.util.Collections
+import java.util.concurrent.Executors
+
+class LazyGraphTest {
+
+    @Test
+    fun `should initialize lazies after their dependencies`() {
+        val order = Collections.synchronizedList(mutableListOf<String>())
+        val lazy = { name: String -> Lazy { Thread.sleep(20); order.add(name) } }
+        val executor = Executors.newFixedThreadPool(4)
+
+        try {
+            val report = LazyGraph()
+                .register("database", lazy("database"))
+                .register("config", lazy("config"))
+                .register("repository", lazy("repository"), "database")
+                .register("service", lazy("service"), "repository", "config")
+                .warmUp(executor)
+                .join()
+
+            assertTrue(report.isSuccessful)
+            assertEquals(4, report.initTimes.size)
+            assertTrue(order.indexOf("database") < order.indexOf("repository"))
+            assertTrue(order.indexOf("repository") < order.indexOf("service"))
+            assertTrue(order.indexOf("config") < order.indexOf("service"))
+        }
+        finally {
+            executor.shutdown()
+        }
+    }
+
+    @Test
+    fun `should skip dependents of failed lazy`() {
+        val dependent = Lazy { "value" }
+        val report = LazyGraph()
+            .register("broken", Lazy<Any> { throw IllegalStateException() })
+            .register("dependent", dependent, "broken")
+            .register("independent", Lazy { "value" })
+            .warmUp(Runnable::run)
+            .join()
+
+        assertEquals(setOf("broken", "dependent"), report.failures.keys)
+        assertEquals(setOf("independent"), report.initTimes.keys)
+        assertFalse(dependent.isInitialized)
+    }
+
+    @Test
+    fun `should detect cycles and unknown dependencies`() {
+        val cycle = LazyGraph()
+            .register("a", Lazy { 1 }, "c")
+            .register("b", Lazy { 2 }, "a")
+            .register("c", Lazy { 3 }, "b")
+
+        assertEquals(
+            "Lazy values contain dependency cycle: a -> c -> b -> a",
+            assertThrows(IllegalStateException::class.java) { cycle.warmUp(Runnable::run) }.message
+        )
+        assertThrows(IllegalStateException::class.java) { LazyGraph().register("a", Lazy { 1 }, "b").warmUp(Runnable::run) }
+    }
+
+}
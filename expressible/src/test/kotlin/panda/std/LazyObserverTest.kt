@@ -0,0 +1,90 @@
+/*
+ * Copyright (c) 2021 dzikoysk
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package panda.std
+
+import org.junit.jupiter.api.Assertions.assertEquals
+import org.junit.jupiter.api.Assertions.assertThrows
+import org.junit.jupiter.api.Assertions.assertTrue
+import org.junit.jupiter.api.Test
+import java.time.Duration
+import java.util.concurrent.CountDownLatch
+import java.util.function.Supplier
+
+class LazyObserverTest {
+
+    @Test
+    fun `should report initialization and waiting callers`() {
+        val statistics = LazyStatistics()
+        val started = CountDownLatch(1)
+        val release = CountDownLatch(1)
+        val lazy = Lazy { started.countDown(); release.await(); "value" }.observe(statistics)
+
+        val first = Thread { lazy.get() }.also { it.start() }
+        started.await()
+        val others = (1..3).map { Thread { lazy.get() }.also { it.start() } }
+
+        // release initialization only when all other callers are blocked on the slow path
+        while (others.any { it.state != Thread.State.BLOCKED }) Thread.yield()
+        release.countDown()
+        (others + first).forEach { it.join() }
+
+        assertEquals("value", lazy.get())
+        assertEquals(1, statistics.initializations)
+        assertTrue(statistics.initializationNanos > 0)
+        assertEquals(3, statistics.waiters)
+    }
+
+    @Test
+    fun `should report failures and recomputations`() {
+        val statistics = LazyStatistics()
+
+        val failing = Lazy<Any> { throw IllegalStateException() }.observe(statistics)
+        assertThrows(AttemptFailedException::class.java) { failing.get() }
+        assertEquals(1, statistics.failures)
+
+        val reclaimable = ReclaimableLazy.soft { "value" }.observe(statistics)
+        reclaimable.get()
+        reclaimable.invalidate()
+        reclaimable.get()
+        assertEquals(1, statistics.initializations)
+        assertEquals(1, statistics.recomputations)
+    }
+
+    @Test
+    fun `should keep computed value if observer throws`() {
+        var calls = 0
+        val failures = mutableListOf<Throwable>()
+        val throwing = object : LazyObserver {
+            override fun onInitialized(lazy: Supplier<*>, durationNanos: Long) = throw IllegalStateException("observer")
+            override fun onFailed(lazy: Supplier<*>, durationNanos: Long, failure: Throwable) { failures.add(failure) }
+        }
+
+        val lazy = Lazy { ++calls }.observe(throwing)
+        assertThrows(IllegalStateException::class.java) { lazy.get() }
+        assertEquals(1, lazy.get())
+
+        val retrying = RetryingLazy({ ++calls }, RetryingLazy.Backoff.exponential(Duration.ofSeconds(1), Duration.ofSeconds(1))).observe(throwing)
+        assertThrows(IllegalStateException::class.java) { retrying.get() }
+        assertEquals(2, retrying.get())
+
+        val reclaimable = ReclaimableLazy.weak { ++calls }.observe(throwing)
+        assertThrows(IllegalStateException::class.java) { reclaimable.get() }
+
+        assertEquals(3, calls)
+        assertTrue(failures.isEmpty())
+    }
+
+}
@@ -18,6 +18,8 @@ package panda.std
 
 import org.junit.jupiter.api.Assertions.*
 import org.junit.jupiter.api.Test
+import java.util.concurrent.Executors
+import java.util.concurrent.atomic.AtomicInteger
 
 class LazyTest {
 
@@ -72,4 +74,20 @@ class LazyTest {
         assertThrows(AttemptFailedException::class.java, { lazy.get() }, "Lazy value has been already initialized with exception")
     }
 
-}
\ No newline at end of file
+    @Test
+    fun `should call supplier once for concurrent callers`() {
+        val calls = AtomicInteger()
+        val lazy = Lazy { Thread.sleep(50); calls.incrementAndGet() }
+        val executor = Executors.newFixedThreadPool(8)
+
+        try {
+            val results = (1..32).map { executor.submit<Int> { lazy.get() } }.map { it.get() }
+            assertEquals(List(32) { 1 }, results)
+            assertEquals(1, calls.get())
+        }
+        finally {
+            executor.shutdown()
+        }
+    }
+
+}
@@ -0,0 +1,60 @@
+/*
+ * Copyright (c) 2021 dzikoysk
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package panda.std
+
+import org.junit.jupiter.api.Assertions.assertEquals
+import org.junit.jupiter.api.Assertions.assertFalse
+import org.junit.jupiter.api.Assertions.assertNull
+import org.junit.jupiter.api.Assertions.assertSame
+import org.junit.jupiter.api.Assertions.assertThrows
+import org.junit.jupiter.api.Assertions.assertTrue
+import org.junit.jupiter.api.Test
+
+class ReclaimableLazyTest {
+
+    @Test
+    fun `should keep value while it is reachable`() {
+        val lazy = ReclaimableLazy.soft { Any() }
+        val value = lazy.get()
+
+        assertSame(value, lazy.get())
+        assertTrue(lazy.isInitialized)
+        assertEquals(1, lazy.computations)
+    }
+
+    @Test
+    fun `should recompute reclaimed value`() {
+        val lazy = ReclaimableLazy.weak { ByteArray(1024) }
+        lazy.get()
+        lazy.reclaim()
+
+        assertFalse(lazy.isInitialized)
+        assertEquals(1024, lazy.get().size)
+        assertEquals(2, lazy.computations)
+    }
+
+    @Test
+    fun `should support null values and retry failures`() {
+        assertNull(ReclaimableLazy.soft<Any?> { null }.get())
+
+        var fail = true
+        val lazy = ReclaimableLazy.soft { if (fail) throw IllegalStateException() else "value" }
+        assertThrows(AttemptFailedException::class.java) { lazy.get() }
+        fail = false
+        assertEquals("value", lazy.get())
+    }
+
+}
@@ -0,0 +1,100 @@
+/*
+ * Copyright (c) 2021 dzikoysk
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package panda.std
+
+import org.junit.jupiter.api.Assertions.assertEquals
+import org.junit.jupiter.api.Assertions.assertThrows
+import org.junit.jupiter.api.Assertions.assertTrue
+import org.junit.jupiter.api.Test
+import java.time.Clock
+import java.time.Duration
+import java.time.Instant
+import java.time.ZoneId
+import java.time.ZoneOffset
+
+class RetryingLazyTest {
+
+    private class ManualClock(var time: Long = 0) : Clock() {
+        override fun getZone(): ZoneId = ZoneOffset.UTC
+        override fun withZone(zone: ZoneId?): Clock = this
+        override fun instant(): Instant = Instant.ofEpochMilli(time)
+    }
+
+    private val clock = ManualClock()
+    private val backoff = RetryingLazy.Backoff.exponential(Duration.ofSeconds(1), Duration.ofSeconds(10)).withJitter(0.0)
+
+    @Test
+    fun `should fail fast during backoff and retry after it`() {
+        var calls = 0
+        val lazy = RetryingLazy({ if (++calls < 3) throw IllegalStateException("$calls") else "value" }, backoff, clock)
+
+        assertThrows(AttemptFailedException::class.java) { lazy.get() }
+        assertThrows(AttemptFailedException::class.java) { lazy.get() }
+        assertEquals(1, calls)
+
+        clock.time = 1_000
+        assertEquals("2", lazy.result.error.message)
+        assertEquals(2, calls)
+
+        clock.time = 2_999
+        assertTrue(lazy.result.isErr)
+        assertEquals(2, calls)
+
+        clock.time = 3_000
+        assertEquals("value", lazy.get())
+        assertEquals("value", lazy.result.get())
+        assertEquals(3, calls)
+        assertEquals(2, lazy.failedAttempts)
+    }
+
+    @Test
+    fun `should cache failure permanently after max attempts`() {
+        var calls = 0
+        val lazy = RetryingLazy<String>({ calls++; throw IllegalStateException() }, backoff.withMaxAttempts(2), clock)
+
+        assertTrue(lazy.result.isErr)
+        clock.time = 1_000
+        assertTrue(lazy.result.isErr)
+        clock.time = Long.MAX_VALUE / 2
+        assertTrue(lazy.result.isErr)
+        assertEquals(2, calls)
+        assertEquals(2, lazy.failedAttempts)
+    }
+
+    @Test
+    fun `should not overflow retry time near the end of clock`() {
+        var calls = 0
+        clock.time = Long.MAX_VALUE - 500
+        val lazy = RetryingLazy<String>({ calls++; throw IllegalStateException() }, backoff, clock)
+
+        assertTrue(lazy.result.isErr)
+        assertTrue(lazy.result.isErr)
+        assertEquals(1, calls)
+    }
+
+    @Test
+    fun `should fail recursive initialization instead of overflowing the stack`() {
+        var calls = 0
+        lateinit var lazy: RetryingLazy<String>
+        lazy = RetryingLazy({ calls++; lazy.get() }, backoff, clock)
+
+        val failure = assertThrows(AttemptFailedException::class.java) { lazy.get() }
+        assertEquals("Recursive initialization of lazy value", failure.cause?.message)
+        assertEquals(1, calls)
+        assertEquals(1, lazy.failedAttempts)
+    }
+
+}
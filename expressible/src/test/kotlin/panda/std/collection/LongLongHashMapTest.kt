@@ -0,0 +1,49 @@
+/*
+ * Copyright (c) 2021 dzikoysk
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package panda.std.collection
+
+import org.junit.jupiter.api.Assertions.assertEquals
+import org.junit.jupiter.api.Assertions.assertFalse
+import org.junit.jupiter.api.Assertions.assertTrue
+import org.junit.jupiter.api.Test
+
+class LongLongHashMapTest {
+
+    @Test
+    fun `should store and merge values`() {
+        val map = LongLongHashMap(2)
+
+        for (key in -1_000L..1_000L) {
+            map.put(key, key)
+            map.merge(key, 1, java.lang.Long::sum)
+        }
+
+        assertEquals(2_001, map.size())
+        assertEquals(-999L, map.get(-1_000, 0))
+        assertEquals(1_001L, map.get(1_000, 0))
+        assertEquals(42L, map.get(5_000, 42))
+        assertTrue(map.containsKey(0))
+        assertFalse(map.containsKey(5_000))
+    }
+
+    @Test
+    fun `should merge maps`() {
+        val left = LongLongHashMap().also { it.add(1, 1); it.add(2, 2) }
+        val right = LongLongHashMap().also { it.add(2, 3); it.add(3, 3) }
+        assertEquals(mapOf(1L to 1L, 2L to 5L, 3L to 3L), left.mergeAll(right, java.lang.Long::sum).toMap())
+    }
+
+}
@@ -0,0 +1,130 @@
+/*
+ * Copyright (c) 2021 dzikoysk
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package panda.std.function
+
+import org.junit.jupiter.api.Assertions.assertEquals
+import org.junit.jupiter.api.Assertions.assertThrows
+import org.junit.jupiter.api.Assertions.assertTrue
+import org.junit.jupiter.api.Test
+import java.io.IOException
+import java.util.concurrent.CountDownLatch
+import java.util.concurrent.Executors
+import java.util.concurrent.atomic.AtomicInteger
+import java.util.function.BiFunction
+import java.util.function.Function
+
+class MemoizerTest {
+
+    @Test
+    fun `should compute value once per key and report metrics`() {
+        val calls = AtomicInteger()
+        val cache = MemoizingCache<Any, Int>(100)
+        val square = Memoizer.memoize(Function<Int, Int> { calls.incrementAndGet(); it * it }, cache)
+
+        assertEquals(4, square.apply(2))
+        assertEquals(4, square.apply(2))
+        assertEquals(9, square.apply(3))
+        assertEquals(2, calls.get())
+        assertEquals(1, cache.hitCount)
+        assertEquals(2, cache.missCount)
+    }
+
+    @Test
+    fun `should use all arguments as key`() {
+        val calls = AtomicInteger()
+        val sum = Memoizer.memoize(BiFunction<Int, Int?, Int> { a, b -> calls.incrementAndGet(); a + (b ?: 0) }, 100)
+        val join = Memoizer.memoize(QuadFunction<String, String, String, String, String> { a, b, c, d -> calls.incrementAndGet(); a + b + c + d }, 100)
+
+        assertEquals(3, sum.apply(1, 2))
+        assertEquals(3, sum.apply(2, 1))
+        assertEquals(1, sum.apply(1, null))
+        assertEquals(1, sum.apply(1, null))
+        assertEquals("abcd", join.apply("a", "b", "c", "d"))
+        assertEquals("abcd", join.apply("a", "b", "c", "d"))
+        assertEquals(4, calls.get())
+    }
+
+    @Test
+    fun `should keep cache bounded and retain frequently used keys`() {
+        val cache = MemoizingCache<Any, Int>(100)
+        val identity = Memoizer.memoize(Function<Int, Int> { it }, cache)
+
+        for (cold in 1_000 until 11_000) {
+            identity.apply(cold % 50)
+            identity.apply(cold)
+        }
+
+        assertTrue(cache.size() <= 100)
+        assertTrue(cache.evictionCount > 0)
+        assertEquals(50, (0 until 50).count { cache.getIfPresent(it).isDefined })
+    }
+
+    @Test
+    fun `should not cache failures of throwing functions`() {
+        var fail = true
+        val cache = MemoizingCache<Any, String>(10)
+        val read = Memoizer.memoizeThrowing(ThrowingFunction<String, String, IOException> { if (fail) throw IOException(it) else it }, cache)
+
+        assertThrows(IOException::class.java) { read.apply("file") }
+        fail = false
+        assertEquals("file", read.apply("file"))
+        assertEquals(1, cache.loadFailureCount)
+    }
+
+    @Test
+    fun `should load value once for concurrent callers`() {
+        val calls = AtomicInteger()
+        val started = CountDownLatch(1)
+        val slow = Memoizer.memoize(Function<String, Int> { started.countDown(); Thread.sleep(50); calls.incrementAndGet() }, 10)
+        val executor = Executors.newFixedThreadPool(8)
+
+        try {
+            val results = (1..16).map { executor.submit<Int> { slow.apply("key") } }.map { it.get() }
+            assertEquals(List(16) { 1 }, results)
+            assertEquals(1, calls.get())
+        }
+        finally {
+            executor.shutdown()
+        }
+    }
+
+    @Test
+    fun `should not count callers waiting for failed load as hits`() {
+        val release = CountDownLatch(1)
+        val cache = MemoizingCache<String, Int>(10)
+        val executor = Executors.newSingleThreadExecutor()
+
+        try {
+            val loading = executor.submit<Int> { cache.get<Exception>("key") { release.await(); throw IllegalStateException() } }
+            while (cache.missCount == 0L) Thread.yield()
+
+            val waiting = Thread { runCatching { cache.get<Exception>("key") { 1 } } }
+            waiting.start()
+            while (cache.waitCount == 0L) Thread.yield()
+
+            release.countDown()
+            waiting.join()
+            assertThrows(Exception::class.java) { loading.get() }
+            assertEquals(0, cache.hitCount)
+            assertEquals(1, cache.waitCount)
+            assertEquals(1, cache.loadFailureCount)
+        }
+        finally {
+            executor.shutdown()
+        }
+    }
+
+}
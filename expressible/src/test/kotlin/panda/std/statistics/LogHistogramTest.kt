@@ -0,0 +1,61 @@
+/*
+ * Copyright (c) 2021 dzikoysk
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package panda.std.statistics
+
+import org.junit.jupiter.api.Assertions.assertEquals
+import org.junit.jupiter.api.Assertions.assertThrows
+import org.junit.jupiter.api.Assertions.assertTrue
+import org.junit.jupiter.api.Test
+import kotlin.math.abs
+
+class LogHistogramTest {
+
+    @Test
+    fun `should record values with bounded relative error`() {
+        val histogram = LogHistogram()
+        (1L..1_000_000L).forEach { histogram.record(it) }
+
+        assertEquals(1_000_000, histogram.count)
+        assertEquals(1, histogram.min)
+        assertEquals(1_000_000, histogram.max)
+        assertEquals(500_000.5, histogram.mean, 0.001)
+        assertTrue(abs(histogram.valueAtQuantile(0.5) - 500_000) <= 500_000 / 128)
+        assertTrue(abs(histogram.valueAtQuantile(0.99) - 990_000) <= 990_000 / 128)
+        assertEquals(1_000_000, histogram.valueAtQuantile(1.0))
+    }
+
+    @Test
+    fun `should keep small values exact`() {
+        val histogram = LogHistogram(3)
+        listOf(0L, 1L, 2L, 3L, 4L, 5L, 6L, 7L).forEach { histogram.record(it) }
+        assertEquals(3, histogram.valueAtQuantile(0.5))
+        assertEquals(1, histogram.getCount(7))
+        assertEquals(Long.MAX_VALUE, LogHistogram().also { it.record(Long.MAX_VALUE) }.valueAtQuantile(0.5))
+    }
+
+    @Test
+    fun `should merge histograms with the same precision`() {
+        val left = LogHistogram().also { it.record(10) }
+        val right = LogHistogram().also { it.record(20, 3) }
+
+        assertEquals(20, left.merge(right).valueAtQuantile(0.5))
+        assertEquals(4, left.count)
+        assertThrows(IllegalArgumentException::class.java) { left.merge(LogHistogram(4)) }
+        assertThrows(IllegalArgumentException::class.java) { left.record(-1) }
+        assertThrows(IllegalArgumentException::class.java) { left.getCount(-1) }
+    }
+
+}
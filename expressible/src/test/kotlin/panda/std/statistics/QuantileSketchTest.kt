@@ -0,0 +1,70 @@
+/*
+ * Copyright (c) 2021 dzikoysk
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package panda.std.statistics
+
+import org.junit.jupiter.api.Assertions.assertEquals
+import org.junit.jupiter.api.Assertions.assertThrows
+import org.junit.jupiter.api.Assertions.assertTrue
+import org.junit.jupiter.api.Test
+
+class QuantileSketchTest {
+
+    private val values = (1..100_000).shuffled(java.util.Random(42))
+
+    @Test
+    fun `should estimate quantiles within rank error`() {
+        val sketch = QuantileSketch()
+        values.forEach { sketch.update(it.toDouble()) }
+
+        assertEquals(100_000, sketch.count)
+        assertEquals(1.0, sketch.min)
+        assertEquals(100_000.0, sketch.max)
+        assertEquals(50_000.0, sketch.quantile(0.5), 2_000.0)
+        assertEquals(99_000.0, sketch.quantile(0.99), 2_000.0)
+        assertEquals(0.25, sketch.rank(25_000.0), 0.02)
+        assertTrue(sketch.retained < 1_000)
+    }
+
+    @Test
+    fun `should merge sketches`() {
+        val left = QuantileSketch()
+        val right = QuantileSketch()
+        values.forEachIndexed { index, value -> (if (index % 2 == 0) left else right).update(value.toDouble()) }
+        val merged = left.merge(right)
+
+        assertEquals(100_000, merged.count)
+        assertEquals(90_000.0, merged.quantile(0.9), 2_000.0)
+    }
+
+    @Test
+    fun `should merge sketch with itself`() {
+        val sketch = QuantileSketch()
+        values.forEach { sketch.update(it.toDouble()) }
+        sketch.merge(sketch)
+
+        assertEquals(200_000, sketch.count)
+        assertEquals(90_000.0, sketch.quantile(0.9), 2_000.0)
+    }
+
+    @Test
+    fun `should handle empty sketch and invalid arguments`() {
+        assertTrue(QuantileSketch().quantile(0.5).isNaN())
+        assertThrows(IllegalArgumentException::class.java) { QuantileSketch(1) }
+        assertThrows(IllegalArgumentException::class.java) { QuantileSketch().quantile(1.5) }
+        assertThrows(IllegalArgumentException::class.java) { QuantileSketch().update(Double.NaN) }
+    }
+
+}
@@ -0,0 +1,86 @@
+/*
+ * Copyright (c) 2021 dzikoysk
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package panda.std.stream
+
+import java.time.Duration
+import java.util.concurrent.CopyOnWriteArrayList
+import java.util.concurrent.CountDownLatch
+import java.util.concurrent.Executors
+import java.util.concurrent.TimeUnit
+import org.junit.jupiter.api.Assertions.assertEquals
+import org.junit.jupiter.api.Assertions.assertThrows
+import org.junit.jupiter.api.Assertions.assertTrue
+import org.junit.jupiter.api.Test
+import panda.std.AttemptFailedException
+
+class BatchingSinkTest {
+
+    private val executor = Executors.newCachedThreadPool { Thread(it).also { thread -> thread.isDaemon = true } }
+
+    @Test
+    fun `should flush batches by size`() {
+        val batches = mutableListOf<List<Int>>()
+        PandaStream.of((1..10).toList()).forEachBatch(4, Duration.ofHours(1)) { batches.add(it.toList()) }
+        assertEquals(listOf(listOf(1, 2, 3, 4), listOf(5, 6, 7, 8), listOf(9, 10)), batches)
+    }
+
+    @Test
+    fun `should flush batches by latency`() {
+        val batches = mutableListOf<List<Int>>()
+        PandaStream.of((1..3).toList()).forEachBatch(100, Duration.ZERO) { batches.add(it.toList()) }
+        assertEquals(listOf(listOf(1), listOf(2), listOf(3)), batches)
+    }
+
+    @Test
+    fun `should flush batches asynchronously in order`() {
+        val batches = CopyOnWriteArrayList<List<Int>>()
+        val threads = CopyOnWriteArrayList<Thread>()
+
+        PandaStream.of((1..1_000).toList()).forEachBatchAsync(10, Duration.ofHours(1), 2, executor) {
+            threads.add(Thread.currentThread())
+            batches.add(it.toList())
+        }
+
+        assertEquals(100, batches.size)
+        assertEquals((1..1_000).toList(), batches.flatten())
+        assertTrue(threads.none { it == Thread.currentThread() })
+    }
+
+    @Test
+    fun `should flush expired batch in background`() {
+        val flushed = CountDownLatch(1)
+
+        BatchingSink.asynchronous<String>(100, Duration.ofMillis(10), 1, executor) { flushed.countDown() }.use {
+            it.accept("value")
+            assertTrue(flushed.await(5, TimeUnit.SECONDS))
+        }
+    }
+
+    @Test
+    fun `should propagate failure of asynchronous consumer`() {
+        assertThrows(AttemptFailedException::class.java) {
+            PandaStream.of((1..100).toList()).forEachBatchAsync(1, Duration.ofHours(1), 1, executor) { throw IllegalStateException() }
+        }
+    }
+
+    @Test
+    fun `should reject executor running tasks on the calling thread`() {
+        assertThrows(IllegalArgumentException::class.java) {
+            BatchingSink.asynchronous<Int>(10, Duration.ofHours(1), 1, Runnable::run) { }
+        }
+    }
+
+}
@@ -0,0 +1,64 @@
+/*
+ * Copyright (c) 2021 dzikoysk
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package panda.std.stream
+
+import org.junit.jupiter.api.Assertions.assertEquals
+import org.junit.jupiter.api.Assertions.assertFalse
+import org.junit.jupiter.api.Assertions.assertTrue
+import org.junit.jupiter.api.Test
+
+class CachedStreamTest {
+
+    @Test
+    fun `should evaluate upstream once and replay cached elements`() {
+        var calls = 0
+        val cached = PandaStream.of((1..5_000).toList())
+            .map { calls++; it * 2 }
+            .cached()
+
+        assertEquals(listOf(2, 4, 6), cached.stream().takeWhile { it <= 6 }.toList())
+        assertEquals(4, calls)
+        assertFalse(cached.isComplete)
+
+        assertEquals(5_000, cached.stream().count())
+        assertEquals((1..5_000).map { it * 2 }, cached.stream().toList())
+        assertEquals(5_000, calls)
+        assertTrue(cached.isComplete)
+    }
+
+    @Test
+    fun `should spill cached elements to disk`() {
+        PandaStream.of((1..10_000).toList()).map { "value-$it" }.cached(2_048).use { cached ->
+            assertEquals(10_000, cached.stream().count())
+            assertTrue(cached.isSpilled)
+            assertEquals((1..10_000).map { "value-$it" }, cached.stream().toList())
+            assertEquals("value-10000", cached.stream().last().get())
+        }
+    }
+
+    @Test
+    fun `should interleave traversals`() {
+        val cached = PandaStream.of((1..3_000).toList()).cached()
+        val first = cached.stream().iterator()
+        val second = cached.stream().iterator()
+
+        repeat(2_000) { assertEquals(it + 1, first.next()) }
+        repeat(3_000) { assertEquals(it + 1, second.next()) }
+        repeat(1_000) { assertEquals(it + 2_001, first.next()) }
+        assertFalse(first.hasNext())
+    }
+
+}
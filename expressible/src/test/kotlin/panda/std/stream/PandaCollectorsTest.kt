@@ -0,0 +1,74 @@
+/*
+ * Copyright (c) 2021 dzikoysk
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package panda.std.stream
+
+import java.util.stream.Collectors
+import org.junit.jupiter.api.Assertions.assertEquals
+import org.junit.jupiter.api.Test
+
+class PandaCollectorsTest {
+
+    private val values = listOf("a", "bb", "cc", "ddd", "eee", "fff")
+
+    @Test
+    fun `should group by key into pre-sized map`() {
+        val grouped = values.stream().collect(PandaCollectors.groupingBy({ it.length }, 3))
+        assertEquals(mapOf(1 to listOf("a"), 2 to listOf("bb", "cc"), 3 to listOf("ddd", "eee", "fff")), grouped)
+    }
+
+    @Test
+    fun `should group by key into concurrent map`() {
+        val grouped = (1..10_000).toList().parallelStream().collect(PandaCollectors.groupingByConcurrent({ it % 10 }, 10, Collectors.counting()))
+        assertEquals(10, grouped.size)
+        grouped.values.forEach { assertEquals(1_000L, it) }
+    }
+
+    @Test
+    fun `should group by primitive key`() {
+        val grouped = values.stream().collect(PandaCollectors.groupingByInt({ it.length }, Collectors.joining()))
+        assertEquals(mapOf(1L to "a", 2L to "bbcc", 3L to "dddeeefff"), grouped.toMap())
+    }
+
+    @Test
+    fun `should count by primitive key`() {
+        val counted = (1..10_000).toList().parallelStream().collect(PandaCollectors.countingByLong { it % 7L })
+        assertEquals(7, counted.size())
+        assertEquals(1_429L, counted.get(1, -1))
+        assertEquals(1_428L, counted.get(0, -1))
+    }
+
+    @Test
+    fun `should aggregate values of each group in place`() {
+        val numbers = listOf(5, 3, 8, 1, 4)
+
+        val sums = numbers.stream().collect(PandaCollectors.aggregatingByInt({ it % 2 }, { it.toLong() }, java.lang.Long::sum))
+        assertEquals(mapOf(0L to 12L, 1L to 9L), sums.toMap())
+
+        val minimums = numbers.stream().collect(PandaCollectors.aggregatingByInt({ it % 2 }, { it.toLong() }, Math::min))
+        assertEquals(mapOf(0L to 4L, 1L to 1L), minimums.toMap())
+
+        val maximums = numbers.parallelStream().collect(PandaCollectors.aggregatingBy({ it % 2 == 0 }, { it.toLong() }, Math::max))
+        assertEquals(mapOf(true to 8L, false to 5L), maximums)
+    }
+
+    @Test
+    fun `should count by key`() {
+        assertEquals(mapOf(1 to 1L, 2 to 2L, 3 to 3L), values.stream().collect(PandaCollectors.countingBy { it.length }))
+        assertEquals(mapOf(1 to 1L, 2 to 2L, 3 to 3L), values.parallelStream().collect(PandaCollectors.countingBy({ it.length }, 3)))
+        assertEquals(mapOf(1L to 1L, 2L to 2L, 3L to 3L), values.stream().collect(PandaCollectors.countingByInt({ it.length }, 3)).toMap())
+    }
+
+}
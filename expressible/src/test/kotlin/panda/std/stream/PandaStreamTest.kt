@@ -19,6 +19,8 @@ package panda.std.stream
 import java.util.stream.Stream
 import org.junit.jupiter.api.Assertions.assertArrayEquals
 import org.junit.jupiter.api.Assertions.assertEquals
+import org.junit.jupiter.api.Assertions.assertFalse
+import org.junit.jupiter.api.Assertions.assertThrows
 import org.junit.jupiter.api.Assertions.assertTrue
 import org.junit.jupiter.api.Test
 import org.junit.jupiter.api.Timeout
@@ -47,6 +49,53 @@ class PandaStreamTest {
                 .toList())
     }
 
+    @Test
+    fun `should flatten chained concat`() {
+        var stream = PandaStream.of(0)
+        for (index in 1 until 50_000) stream = stream.concat(PandaStream.of(index))
+
+        val spliterator = stream.toStream().spliterator()
+        assertEquals(50_000, spliterator.exactSizeIfKnown)
+        assertEquals(listOf(0, 1, 2), PandaStream.of(spliterator.trySplit()!!.let { java.util.stream.StreamSupport.stream(it, false) }).toList().take(3))
+    }
+
+    @Test
+    fun `should concat nested concatenations`() {
+        val closed = mutableListOf<Int>()
+        val nested = PandaStream.of(Stream.of(2).onClose { closed.add(2) }).concat(PandaStream.of(Stream.of(3).onClose { closed.add(3) }))
+
+        PandaStream.of(1).concat(nested).toStream().use {
+            assertEquals(listOf(1, 2, 3), PandaStream.of(it).toList())
+        }
+        assertEquals(listOf(2, 3), closed)
+        assertEquals(listOf(1, 2, 3, 4), PandaStream.concatAll(listOf(PandaStream.of(1).concat(PandaStream.of(2)), PandaStream.of(3).concat(PandaStream.of(4)))).toList())
+    }
+
+    @Test
+    fun `should reject concatenation with itself`() {
+        val self = PandaStream.of(1).concat(PandaStream.of(2))
+        assertThrows(IllegalStateException::class.java) { self.concat(self) }
+
+        val inner = PandaStream.of(1).concat(PandaStream.of(2))
+        val outer = PandaStream.of(0).concat(inner)
+        assertThrows(IllegalStateException::class.java) { inner.concat(outer) }
+        assertThrows(IllegalStateException::class.java) { inner.toList() }
+        assertEquals(listOf(0, 1, 2), outer.toList())
+    }
+
+    @Test
+    fun `should concat all streams`() {
+        val closed = mutableListOf<Int>()
+        val streams = (1..1_000).map { index -> PandaStream.of(Stream.of(index, index).onClose { closed.add(index) }) }
+
+        PandaStream.concatAll(streams).toStream().parallel().use {
+            assertEquals((1..1_000).sumOf { it * 2 }, it.mapToInt { value -> value }.sum())
+        }
+        assertEquals(1_000, closed.size)
+        assertEquals(listOf(1, 2, 3), PandaStream.concatAll(listOf(PandaStream.of(1), PandaStream.of(2, 3))).toList())
+        assertTrue(PandaStream.concatAll(emptyList<PandaStream<Int>>()).toList().isEmpty())
+    }
+
     @Test
     fun map() {
         assertArrayEquals(numbers, PandaStream.of(values).map { it.toInt() }
@@ -88,6 +137,27 @@ class PandaStreamTest {
         )
     }
 
+    @Test
+    fun `flat map should be lazy`() {
+        var expanded = 0
+        val result = PandaStream.of(Stream.iterate(1) { it + 1 })
+            .flatMap { expanded++; if (it % 2 == 0) listOf(it, it) else generateSequence(it) { null }.asIterable() }
+            .find { it == 4 }
+
+        assertEquals(4, result.get())
+        assertEquals(4, expanded)
+        assertEquals((1..1_000).sumOf { it * 2 }, PandaStream.of((1..1_000).toList().stream().parallel()).flatMap { listOf(it, it) }.toStream().mapToInt { it }.sum())
+    }
+
+    @Test
+    fun expand() {
+        assertEquals(
+            listOf(2, 3, 3),
+            PandaStream.of(1, 2, 3).expand<Int> { element, sink -> repeat(element - 1) { sink.accept(element) } }.toList()
+        )
+        assertEquals(3, PandaStream.of(Stream.iterate(1) { it + 1 }).expand<Int> { element, sink -> if (element % 3 == 0) sink.accept(element) }.head().get())
+    }
+
     @Test
     fun filter() {
         assertTrue(PandaStream.of(values)
@@ -110,11 +180,26 @@ class PandaStreamTest {
         while (PandaStream.of(values).shuffle().toList() == values) {}
     }
 
+    @Test
+    fun `seeded shuffle should be reproducible`() {
+        val elements = (1..100_000).toList()
+        val shuffled = PandaStream.of(elements).toShuffledList(42)
+
+        assertEquals(elements.size, shuffled.size)
+        assertEquals(elements, shuffled.sorted())
+        assertTrue(shuffled != elements)
+        assertEquals(shuffled, PandaStream.of(elements.stream().parallel()).toShuffledList(42))
+        assertEquals(shuffled, PandaStream.of(elements).shuffle(42).toList())
+        assertTrue(shuffled != PandaStream.of(elements).toShuffledList(43))
+    }
+
     @Test
     fun skip() {
         assertEquals(2L, PandaStream.of(values)
                 .skip(1L)
                 .count())
+        assertThrows(IllegalArgumentException::class.java) { PandaStream.of(values).skip(-1) }
+        assertThrows(IllegalArgumentException::class.java) { PandaStream.of(values.stream()).skip(-1) }
     }
 
     @Test
@@ -124,9 +209,77 @@ class PandaStreamTest {
             .isDefined)
     }
 
+    @Test
+    fun `should short-circuit matchers`() {
+        var visited = 0
+        assertTrue(PandaStream.of(Stream.iterate(1) { it + 1 }).map { visited++; it }.anyMatch { it == 10 })
+        assertEquals(10, visited)
+
+        assertTrue(PandaStream.of(values).allMatch { it.isNotEmpty() })
+        assertFalse(PandaStream.of(values).noneMatch { it == "3" })
+        assertEquals(5_000, PandaStream.of((1..100_000).toList()).findFirstParallel { it % 5_000 == 0 }.get())
+    }
+
+    @Test
+    fun `should stop counting at the given number of elements`() {
+        var visited = 0
+        assertTrue(PandaStream.of(Stream.iterate(1) { it + 1 }).map { visited++; it }.countAtLeast(100))
+        assertEquals(100, visited)
+
+        assertTrue(PandaStream.of(values).countAtLeast(3))
+        assertFalse(PandaStream.of(values).countAtLeast(4))
+        assertTrue(PandaStream.of((1..100_000).toList().stream().parallel()).countAtLeast(50_000) { it % 2 == 0 })
+        assertFalse(PandaStream.of((1..100_000).toList().stream().parallel()).countAtLeast(50_001) { it % 2 == 0 })
+    }
+
+    @Test
+    fun `should hash join streams`() {
+        val users = listOf(1 to "panda", 2 to "reposilite", 3 to "dzikoysk")
+        val orders = listOf(1 to "A", 3 to "B", 1 to "C", 4 to "D")
+
+        assertEquals(
+            listOf("panda:A", "dzikoysk:B", "panda:C"),
+            PandaStream.of(orders).hashJoin(PandaStream.of(users), { it.first }, { it.first }) { order, user -> "${user.second}:${order.second}" }.toList()
+        )
+        assertEquals(
+            setOf("panda:A", "panda:C", "dzikoysk:B"),
+            PandaStream.of(users).hashJoin(PandaStream.of(orders), { it.first }, { it.first }) { user, order -> "${user.second}:${order.second}" }.toSet()
+        )
+        assertEquals(
+            listOf("panda:A", "panda:C", "reposilite:null", "dzikoysk:B"),
+            PandaStream.of(users).leftHashJoin(PandaStream.of(orders), { it.first }, { it.first }) { user, order -> "${user.second}:${order?.second}" }.toList()
+        )
+
+        assertEquals(
+            listOf("1:null", "1:A"),
+            PandaStream.of(1).hashJoin(PandaStream.of(null, "A"), { it }, { 1 }) { key, value -> "$key:$value" }.toList()
+        )
+    }
+
+    @Test
+    fun `should merge join sorted streams`() {
+        val left = listOf(1, 2, 2, 4, 6)
+        val right = listOf(2 to "a", 2 to "b", 3 to "c", 4 to "d", 7 to "e")
+
+        assertEquals(
+            listOf("2a", "2b", "2a", "2b", "4d"),
+            PandaStream.of(left).mergeJoin(PandaStream.of(right), { it }, { it.first }) { key, value -> "$key${value.second}" }.toList()
+        )
+        assertEquals(
+            listOf("1null", "2a", "2b", "2a", "2b", "4d", "6null"),
+            PandaStream.of(left).leftMergeJoin(PandaStream.of(right), { it }, { it.first }, naturalOrder()) { key, value -> "$key${value?.second}" }.toList()
+        )
+        assertThrows(IllegalStateException::class.java) {
+            PandaStream.of(3, 1).mergeJoin(PandaStream.of(1, 3), { it }, { it }) { a, b -> a + b }.toList()
+        }
+    }
+
     @Test
     fun head() {
         assertEquals("1", PandaStream.of(values).head().get())
+        assertThrows(NullPointerException::class.java) { PandaStream.of(listOf(null, "1")).head() }
+        assertThrows(NullPointerException::class.java) { PandaStream.of(listOf("1", null)).last() }
+        assertThrows(NullPointerException::class.java) { PandaStream.of(Stream.of(null, "1")).head() }
     }
 
     @Test
@@ -135,6 +288,28 @@ class PandaStreamTest {
         assertEquals(1, PandaStream.of(values).count { it == "2" })
     }
 
+    @Test
+    fun last() {
+        assertEquals("3", PandaStream.of(values).last().get())
+        assertEquals(3, PandaStream.of(values).filter { it != "4" }.map { it.toInt() }.last().get())
+        assertTrue(PandaStream.of(ArrayList<String>()).last().isEmpty)
+    }
+
+    @Test
+    fun `should answer terminals from known source without traversing the stream`() {
+        var calls = 0
+        val mapped = { value: String -> calls++; value.toInt() }
+
+        assertEquals(3, PandaStream.of(values).map(mapped).last().get())
+        assertEquals(1, PandaStream.of(java.util.ArrayDeque(values)).map(mapped).head().get())
+        assertEquals(2, PandaStream.of(values).map(mapped).skip(1).count())
+        assertEquals(2, calls)
+
+        assertEquals(listOf("2", "3"), PandaStream.of(arrayOf("1", "2", "3", "4"), 1, 3).toList())
+        assertEquals("3", PandaStream.of(arrayOf("1", "2", "3", "4"), 1, 3).last().get())
+        assertEquals(0, PandaStream.of(values).skip(5).count())
+    }
+
     @Test
     fun `take while`() {
         assertArrayEquals(arrayOf(1, 2), PandaStream.of(1, 2, 3, 4, 5)
@@ -166,6 +341,65 @@ class PandaStreamTest {
         assertEquals(3, map["3"])
     }
 
+    @Test
+    fun `to map by pair should call mapper once per element`() {
+        var calls = 0
+
+        PandaStream.of(values).toMapByPair {
+            calls++
+            panda.std.Pair(it, it.toInt())
+        }
+
+        assertEquals(values.size, calls)
+    }
+
+    @Test
+    fun `to immutable map`() {
+        val small = PandaStream.of(values).toImmutableMap({ it }, { it.toInt() })
+        assertEquals(mapOf("1" to 1, "2" to 2, "3" to 3), small)
+        assertThrows(UnsupportedOperationException::class.java) { (small as MutableMap<String, Int>)["4"] = 4 }
+
+        val large = PandaStream.of((1..100).toList()).toImmutableMapByPair { panda.std.Pair(it, it * 2) }
+        assertEquals(100, large.size)
+        assertEquals(200, large[100])
+        assertThrows(UnsupportedOperationException::class.java) { (large as MutableMap<Int, Int>)[0] = 0 }
+    }
+
+    @Test
+    fun statistics() {
+        val latencies = (1..10_000).toList()
+
+        assertEquals(5_000.5, PandaStream.of(latencies).longSummaryStatistics { it.toLong() }.average)
+        assertEquals(10_000.0, PandaStream.of(latencies).doubleSummaryStatistics { it.toDouble() }.max)
+        assertEquals(9_900.0, PandaStream.of(latencies.parallelStream()).quantiles { it.toDouble() }.quantile(0.99), 200.0)
+        assertTrue(PandaStream.of(latencies).logHistogram { it.toLong() }.valueAtQuantile(0.99) in 9_850..9_950)
+
+        val histogram = PandaStream.of(latencies).linearHistogram({ it.toDouble() }, 0.0, 5_000.0, 10)
+        assertEquals(500, histogram.getCount(3))
+        assertEquals(5_001, histogram.overflow)
+        assertEquals(10_000, histogram.totalCount)
+    }
+
+    @Test
+    fun `should report profile of every stage`() {
+        var profile: StreamProfile? = null
+
+        val result = PandaStream.of((1..1_000).toList())
+            .profiled("numbers", 1) { profile = it }
+            .map { it * 2 }
+            .filter { it % 4 == 0 }
+            .mapOpt { panda.std.Option.`when`(it > 100, it) }
+            .count()
+
+        assertEquals(475, result)
+        assertEquals("numbers", profile!!.name)
+        assertEquals(listOf("map", "filter", "mapOpt"), profile!!.stages.map { it.name })
+        assertEquals(listOf(1_000L, 1_000L, 500L), profile!!.stages.map { it.elementsIn })
+        assertEquals(listOf(1_000L, 500L, 475L), profile!!.stages.map { it.elementsOut })
+        assertEquals(0.5, profile!!.stages[1].selectivity)
+        assertEquals(1_000L, profile!!.stages[0].sampledElements)
+    }
+
     @Test
     fun `to stream`() {
         assertArrayEquals(numbers, PandaStream.of(values)
@@ -209,6 +443,22 @@ class PandaStreamTest {
         assertEquals(resultList, arrayOfIterables)
     }
 
+    @Test
+    fun `should partition results in a single pass`() {
+        val numbers = (1..10_000).toList()
+        val parse = { value: Int -> if (value % 3 == 0) panda.std.Result.error<Int, String>("$value") else panda.std.Result.ok(value) }
+
+        val partition = PandaStream.of(numbers).partitionResults(parse)
+        assertEquals(numbers.filter { it % 3 != 0 }, partition.first)
+        assertEquals(numbers.filter { it % 3 == 0 }.map { "$it" }, partition.second)
+        assertEquals(partition, PandaStream.of(numbers.stream().parallel()).partitionResults(parse))
+
+        val errors = mutableListOf<String>()
+        assertEquals(listOf(1, 2, 4), PandaStream.of(1, 2, 3, 4).mapResult(parse) { errors.add(it) }.toList())
+        assertEquals(listOf("3"), errors)
+        assertEquals(listOf(1, 2, 4), PandaStream.of(1, 2, 3, 4).collectOk(parse).toList())
+    }
+
     @Test
     fun empty() {
         assertTrue(PandaStream.empty<Any>().toList().isEmpty())
@@ -0,0 +1,78 @@
+/*
+ * Copyright (c) 2021 dzikoysk
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package panda.std.stream
+
+import org.junit.jupiter.api.Assertions.assertEquals
+import org.junit.jupiter.api.Assertions.assertThrows
+import org.junit.jupiter.api.Test
+import java.nio.ByteBuffer
+import java.nio.charset.StandardCharsets
+
+class RecordStreamTest {
+
+    private class LongView : RecordView {
+        var value = 0L
+        override fun bind(buffer: ByteBuffer, offset: Int, length: Int) {
+            value = buffer.getLong(offset)
+        }
+    }
+
+    private class TextView : RecordView {
+        lateinit var text: String
+        override fun bind(buffer: ByteBuffer, offset: Int, length: Int) {
+            val bytes = ByteArray(length)
+            for (index in 0 until length) bytes[index] = buffer.get(offset + index)
+            text = String(bytes, StandardCharsets.UTF_8)
+        }
+    }
+
+    @Test
+    fun `should stream fixed size records using reusable view`() {
+        val buffer = ByteBuffer.allocateDirect(100_000 * 8)
+        for (value in 1..100_000L) buffer.putLong(value)
+        buffer.flip()
+
+        val views = mutableSetOf<LongView>()
+        assertEquals(5_000_050_000L, PandaStream.ofRecords(buffer, RecordLayout.fixed(8), ::LongView).toStream().peek { views.add(it) }.mapToLong { it.value }.sum())
+        assertEquals(1, views.size)
+        assertEquals(5_000_050_000L, PandaStream.ofRecords(buffer, RecordLayout.fixed(8), ::LongView, true).toStream().mapToLong { it.value }.sum())
+        assertEquals(100_000, PandaStream.ofRecords(buffer, RecordLayout.fixed(8), ::LongView, true).count())
+        assertEquals(0, buffer.position())
+    }
+
+    @Test
+    fun `should stream length prefixed records`() {
+        val values = (1..20_000).map { "record-$it" }
+        val buffer = ByteBuffer.allocate(values.sumOf { it.length + 2 })
+        values.forEach { buffer.putShort(it.length.toShort()).put(it.toByteArray()) }
+        buffer.flip()
+
+        assertEquals(values, PandaStream.ofRecords(buffer, RecordLayout.lengthPrefixed(2), ::TextView).map { it.text }.toList())
+        assertEquals(values, PandaStream.ofRecords(buffer, RecordLayout.lengthPrefixed(2), ::TextView, true).map { it.text }.toList())
+    }
+
+    @Test
+    fun `should reject truncated records`() {
+        val buffer = ByteBuffer.allocate(6).putInt(10).putShort(1)
+        buffer.flip()
+        assertThrows(IllegalStateException::class.java) { PandaStream.ofRecords(buffer, RecordLayout.lengthPrefixed(), ::TextView).count() }
+
+        val partial = ByteBuffer.allocate(20).putLong(1).putLong(2).putInt(3)
+        partial.flip()
+        assertThrows(IllegalStateException::class.java) { PandaStream.ofRecords(partial, RecordLayout.fixed(8), ::LongView).count() }
+    }
+
+}
@@ -52,4 +52,28 @@ class StreamUtilsTest {
         assertTrue(mapped.contains("5"))
     }
 
+    @Test
+    fun `should handle arrays and plain iterables`() {
+        val array = arrayOf(5, 2, 5)
+        val iterable = Iterable { collection.iterator() }
+
+        assertEquals(12, StreamUtils.sum(array) { it.toLong() })
+        assertEquals(12, StreamUtils.sum(iterable) { it.toLong() })
+        assertEquals(2, StreamUtils.count(array) { it == 5 })
+        assertEquals(2, StreamUtils.count(iterable) { it == 5 })
+        assertEquals(5, StreamUtils.findFirst(iterable) { it > 2 }.orElse(-1))
+        assertTrue(!StreamUtils.findFirst(array) { it > 5 }.isPresent)
+        assertEquals(listOf("5", "2", "5"), StreamUtils.map(array) { it.toString() })
+        assertEquals(listOf("5", "2", "5"), StreamUtils.map(iterable) { it.toString() })
+    }
+
+    @Test
+    fun `parallel sum and count`() {
+        val values = (1..100_000).toList()
+
+        assertEquals(5_000_050_000L, StreamUtils.parallelSum(values) { it.toLong() })
+        assertEquals(50_000, StreamUtils.parallelCount(values) { it % 2 == 0 })
+        assertEquals(50_000, StreamUtils.parallelCount(values.toTypedArray()) { it % 2 == 0 })
+    }
+
 }